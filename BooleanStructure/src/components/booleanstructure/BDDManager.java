@@ -0,0 +1,882 @@
+package components.booleanstructure;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Shared store for the nodes of {@code BooleanStructure2} instances (a "BDD
+ * factory"). Every node is hash-consed in a single unique table, so a
+ * sub-function that occurs in several structures created from the same
+ * manager is stored once. A {@code BooleanStructure2} is a handle holding the
+ * edge to its root node in its manager.
+ *
+ * An edge is an int whose low bit is a complement tag and whose remaining
+ * bits are a node ID: edge e denotes the function of node e / 2, negated if e
+ * is odd. Node 0 is the only leaf, so the edges {@code TRUE} and
+ * {@code FALSE} are the two constants, and f and its negation share every
+ * node. Every other live node is a triple (var, lo, hi) of a variable and two
+ * edges with lo /= hi and hi not complemented. With this convention, and no
+ * two live nodes having the same triple, each function has exactly one edge
+ * for a given variable order.
+ *
+ * Nodes that are no longer reachable from any live handle are reclaimed by
+ * {@code collect}, which structures call only between operations. A manager
+ * is not safe for use by several threads at once.
+ *
+ * @mathmodel type BDDManager is modeled by (nodes: finite set of (id:
+ *            integer, var: integer, lo: edge, hi: edge), handles: finite set
+ *            of BooleanStructure2)
+ */
+public final class BDDManager {
+
+    /**
+     * Edge to the constant true function: the leaf, not complemented.
+     */
+    static final int TRUE = 0;
+
+    /**
+     * Edge to the constant false function: the leaf, complemented.
+     */
+    static final int FALSE = 1;
+
+    /**
+     * Variable label reported for the leaf.
+     */
+    static final int LEAF_VAR = Integer.MAX_VALUE;
+
+    /**
+     * Fingerprint of the constant true function; that of false is its
+     * bitwise complement.
+     */
+    static final int TRUE_FINGERPRINT = 0x5BD1E995;
+
+    /**
+     * Default number of live nodes above which {@code collect} is attempted.
+     */
+    private static final int DEFAULT_GC_THRESHOLD = 1 << 16;
+
+    /**
+     * Default capacity of the computed table.
+     */
+    private static final int DEFAULT_CACHE_CAPACITY = 1 << 18;
+
+    /**
+     * Managers used by structures constructed without an explicit manager,
+     * one per thread since a manager is not safe for concurrent use.
+     */
+    private static final ThreadLocal<BDDManager> DEFAULT = ThreadLocal
+            .withInitial(BDDManager::new);
+
+    /**
+     * Marker stored as the variable of IDs on the free list.
+     */
+    private static final int FREE_VAR = Integer.MIN_VALUE;
+
+    /**
+     * Marker for the end of a bucket chain or of the free list.
+     */
+    private static final int NIL = -1;
+
+    /**
+     * Number of node slots allocated initially.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /**
+     * Number of handles above which {@code register} first drops the handles
+     * of reclaimed structures.
+     */
+    private static final int INITIAL_HANDLES_LIMIT = 1 << 6;
+
+    /*
+     * Node store: parallel arrays indexed by node ID.
+     */
+
+    /**
+     * Variable tested by each node; FREE_VAR for IDs on the free list.
+     */
+    private int[] varOf;
+
+    /**
+     * Edge to the lo child of each node.
+     */
+    private int[] loOf;
+
+    /**
+     * Edge to the hi child of each node; never complemented.
+     */
+    private int[] hiOf;
+
+    /**
+     * Fingerprint of the function of each node, as defined by
+     * {@code fingerprint}.
+     */
+    private int[] fingerprintOf;
+
+    /**
+     * Next node in the same unique-table bucket, or next ID on the free list.
+     */
+    private int[] next;
+
+    /**
+     * Stamp of the traversal that last marked each node; a node is marked iff
+     * its stamp is {@code markStamp}.
+     */
+    private int[] markOf;
+
+    /**
+     * Value recorded for each node when it was last marked.
+     */
+    private int[] markValueOf;
+
+    /**
+     * Stamp of the current traversal.
+     */
+    private int markStamp;
+
+    /**
+     * Scratch stack for traversals of the node store.
+     */
+    private int[] stack;
+
+    /**
+     * First node of each unique-table bucket.
+     */
+    private int[] buckets;
+
+    /**
+     * Number of IDs ever handed out (live or free).
+     */
+    private int size;
+
+    /**
+     * First ID of the free list.
+     */
+    private int freeList;
+
+    /**
+     * Number of IDs on the free list.
+     */
+    private int freeCount;
+
+    /**
+     * Results of earlier operations, keyed by operation code and operand IDs.
+     */
+    private final ComputedTable cache;
+
+    /**
+     * Results of earlier if-then-else operations, keyed by operation code and
+     * the three operand IDs.
+     */
+    private final ComputedTable iteCache;
+
+    /**
+     * Structures whose roots are kept alive by {@code collect}.
+     */
+    private final List<WeakReference<BooleanStructure2>> handles;
+
+    /**
+     * Number of handles at which {@code register} next drops the handles of
+     * reclaimed structures.
+     */
+    private int handlesLimit;
+
+    /**
+     * Small integer naming each variable order seen by {@code orderId}.
+     */
+    private final HashMap<VariableOrder, Integer> orderIds;
+
+    /**
+     * Number of live nodes above which {@code collect} runs.
+     */
+    private int gcThreshold;
+
+    /**
+     * Number of collections performed so far.
+     */
+    private int collections;
+
+    /**
+     * Number of live nodes above which structures built by
+     * {@code setFromTree} are sifted; 0 if automatic reordering is off.
+     */
+    private int reorderThreshold;
+
+    /**
+     * Number of sifting passes performed so far.
+     */
+    private int reorderings;
+
+    /**
+     * Total decrease in diagram size achieved by sifting.
+     */
+    private long reorderNodesSaved;
+
+    /**
+     * Total time spent sifting, in nanoseconds.
+     */
+    private long reorderNanos;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public BDDManager() {
+        this(DEFAULT_GC_THRESHOLD, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Constructor from sizing parameters.
+     *
+     * @param gcThreshold
+     *            number of live nodes above which unreachable nodes are
+     *            reclaimed
+     * @param cacheCapacity
+     *            number of entries of the computed table
+     * @requires gcThreshold > 0 and cacheCapacity > 0
+     */
+    public BDDManager(int gcThreshold, int cacheCapacity) {
+        assert gcThreshold > 0 : "Violation of: gcThreshold > 0";
+        assert cacheCapacity > 0 : "Violation of: cacheCapacity > 0";
+
+        this.varOf = new int[INITIAL_CAPACITY];
+        this.loOf = new int[INITIAL_CAPACITY];
+        this.hiOf = new int[INITIAL_CAPACITY];
+        this.fingerprintOf = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.markOf = new int[INITIAL_CAPACITY];
+        this.markValueOf = new int[INITIAL_CAPACITY];
+        this.markStamp = 1;
+        this.stack = new int[INITIAL_CAPACITY + 1];
+        this.buckets = new int[INITIAL_CAPACITY];
+        Arrays.fill(this.buckets, NIL);
+        this.freeList = NIL;
+        this.freeCount = 0;
+        this.cache = new ComputedTable(cacheCapacity);
+        this.iteCache = new ComputedTable(cacheCapacity);
+        this.handles = new ArrayList<WeakReference<BooleanStructure2>>();
+        this.handlesLimit = INITIAL_HANDLES_LIMIT;
+        this.orderIds = new HashMap<VariableOrder, Integer>();
+        this.gcThreshold = gcThreshold;
+
+        // The leaf is never reclaimed
+        this.varOf[0] = LEAF_VAR;
+        this.loOf[0] = TRUE;
+        this.hiOf[0] = TRUE;
+        this.fingerprintOf[0] = TRUE_FINGERPRINT;
+        this.next[0] = NIL;
+        this.size = 1;
+    }
+
+    /**
+     * Returns the manager shared by all structures constructed without an
+     * explicit manager on the calling thread. Each thread has its own default
+     * manager.
+     *
+     * @return the default manager of the calling thread
+     */
+    public static BDDManager defaultManager() {
+        return DEFAULT.get();
+    }
+
+    /*
+     * Node access ------------------------------------------------------------
+     */
+
+    /**
+     * Reports whether edge {@code e} points to the leaf.
+     *
+     * @param e
+     *            the edge
+     * @return true iff e is FALSE or TRUE
+     */
+    static boolean isLeaf(int e) {
+        return (e >>> 1) == 0;
+    }
+
+    /**
+     * Returns the edge denoting the negation of edge {@code e}.
+     *
+     * @param e
+     *            the edge
+     * @return e with its complement tag flipped
+     */
+    static int complement(int e) {
+        return e ^ 1;
+    }
+
+    /**
+     * Reports the variable tested by the node of edge {@code e}.
+     *
+     * @param e
+     *            the edge
+     * @return the variable of e, or LEAF_VAR if e is a leaf
+     * @requires e is live in this
+     */
+    int var(int e) {
+        return this.varOf[e >>> 1];
+    }
+
+    /**
+     * Reports the lo cofactor of edge {@code e}: the edge to its lo child,
+     * complemented if e is.
+     *
+     * @param e
+     *            the edge
+     * @return the lo cofactor of e
+     * @requires e is live in this and not isLeaf(e)
+     */
+    int lo(int e) {
+        assert !isLeaf(e) : "Violation of: e is not a leaf";
+        return this.loOf[e >>> 1] ^ (e & 1);
+    }
+
+    /**
+     * Reports the hi cofactor of edge {@code e}: the edge to its hi child,
+     * complemented if e is.
+     *
+     * @param e
+     *            the edge
+     * @return the hi cofactor of e
+     * @requires e is live in this and not isLeaf(e)
+     */
+    int hi(int e) {
+        assert !isLeaf(e) : "Violation of: e is not a leaf";
+        return this.hiOf[e >>> 1] ^ (e & 1);
+    }
+
+    /**
+     * Returns the unique edge testing {@code var} with cofactors {@code lo}
+     * and {@code hi}, creating its node if necessary. A node whose children
+     * are equal is redundant, so in that case the child itself is returned. If
+     * hi is complemented, the node is made from the negated cofactors and the
+     * returned edge is complemented, keeping hi edges regular.
+     *
+     * @param var
+     *            the variable tested by the node
+     * @param lo
+     *            the lo cofactor
+     * @param hi
+     *            the hi cofactor
+     * @return the edge to the node
+     * @updates this.nodes
+     * @requires lo and hi are live in this
+     * @ensures <pre>
+     * if lo = hi then mk = lo
+     *   else this.lo(mk) = lo and this.hi(mk) = hi and this.var(mk) = var
+     * </pre>
+     */
+    int mk(int var, int lo, int hi) {
+        int result = lo;
+        if (lo != hi) {
+            // Move a complement on the hi edge onto the returned edge
+            int tag = hi & 1;
+            lo = lo ^ tag;
+            hi = hi ^ tag;
+
+            int bucket = hash(var, lo, hi) & (this.buckets.length - 1);
+            result = this.buckets[bucket];
+            while (result != NIL && !(this.varOf[result] == var
+                    && this.loOf[result] == lo && this.hiOf[result] == hi)) {
+                result = this.next[result];
+            }
+
+            if (result == NIL) {
+                if (this.freeList != NIL) {
+                    result = this.freeList;
+                    this.freeList = this.next[result];
+                    this.freeCount--;
+                } else {
+                    if (this.size == this.varOf.length) {
+                        this.grow();
+                        bucket = hash(var, lo, hi) & (this.buckets.length - 1);
+                    }
+                    result = this.size;
+                    this.size++;
+                }
+                this.varOf[result] = var;
+                this.loOf[result] = lo;
+                this.hiOf[result] = hi;
+                this.fingerprintOf[result] = combineFingerprints(var,
+                        this.fingerprint(lo), this.fingerprint(hi));
+                this.next[result] = this.buckets[bucket];
+                this.buckets[bucket] = result;
+            }
+            result = (result << 1) | tag;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports the fingerprint of the function of edge {@code e}. Fingerprints
+     * are computed once, when a node is made, and depend only on the function
+     * and on the variable order it was built in, so equal functions have
+     * equal fingerprints across managers.
+     *
+     * @param e
+     *            the edge
+     * @return the fingerprint of e
+     * @requires e is live in this
+     * @ensures fingerprint(complement(e)) = ~fingerprint(e)
+     */
+    int fingerprint(int e) {
+        return this.fingerprintOf[e >>> 1] ^ -(e & 1);
+    }
+
+    /**
+     * Combines the fingerprints of the cofactors of a function on
+     * {@code var} into the fingerprint of the function (a Merkle hash of its
+     * reduced Shannon decomposition). Equal cofactor fingerprints are taken
+     * as a redundant test and passed through, and complementing both
+     * cofactor fingerprints complements the result, so that the fingerprint
+     * of a function does not depend on how it is represented.
+     *
+     * @param var
+     *            the variable
+     * @param lo
+     *            the fingerprint of the lo cofactor
+     * @param hi
+     *            the fingerprint of the hi cofactor
+     * @return the fingerprint of the function
+     * @ensures <pre>
+     * (lo = hi  implies  combineFingerprints = lo) and
+     * combineFingerprints(var, ~lo, ~hi) = ~combineFingerprints(var, lo, hi)
+     * </pre>
+     */
+    static int combineFingerprints(int var, int lo, int hi) {
+        int result = lo;
+        if (lo != hi) {
+            // Hash the representative whose hi fingerprint is even
+            int tag = -(hi & 1);
+            result = hash(var, lo ^ tag, hi ^ tag);
+            result = (result * 0x85EBCA6B) ^ (result >>> 13);
+            result = result ^ tag;
+        }
+
+        return result;
+    }
+
+    /**
+     * Hashes the triple ({@code var}, {@code lo}, {@code hi}).
+     *
+     * @param var
+     *            the variable
+     * @param lo
+     *            the lo child
+     * @param hi
+     *            the hi child
+     * @return the hash of the triple
+     */
+    private static int hash(int var, int lo, int hi) {
+        int h = var;
+        h = 31 * h + lo;
+        h = 0x9E3779B9 * (31 * h + hi);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Doubles the capacity of the node store and rebuilds the unique table
+     * with twice as many buckets.
+     *
+     * @updates this
+     * @ensures [the capacity of the store is doubled and every live node keeps
+     *          its ID]
+     */
+    private void grow() {
+        int capacity = 2 * this.varOf.length;
+        this.varOf = Arrays.copyOf(this.varOf, capacity);
+        this.loOf = Arrays.copyOf(this.loOf, capacity);
+        this.hiOf = Arrays.copyOf(this.hiOf, capacity);
+        this.fingerprintOf = Arrays.copyOf(this.fingerprintOf, capacity);
+        this.next = Arrays.copyOf(this.next, capacity);
+        this.markOf = Arrays.copyOf(this.markOf, capacity);
+        this.markValueOf = Arrays.copyOf(this.markValueOf, capacity);
+        this.stack = new int[capacity + 1];
+        this.buckets = new int[capacity];
+        this.rehash(null);
+    }
+
+    /**
+     * Rebuilds the bucket chains of the unique table from the node store. If
+     * {@code keep} is not null, every node not marked in {@code keep} is moved
+     * to the free list instead.
+     *
+     * @param keep
+     *            the nodes to keep, or null to keep every live node
+     * @updates this
+     */
+    private void rehash(boolean[] keep) {
+        Arrays.fill(this.buckets, NIL);
+        this.freeList = NIL;
+        this.freeCount = 0;
+        int mask = this.buckets.length - 1;
+        for (int n = this.size - 1; n > 0; n--) {
+            if (this.varOf[n] == FREE_VAR || (keep != null && !keep[n])) {
+                this.varOf[n] = FREE_VAR;
+                this.next[n] = this.freeList;
+                this.freeList = n;
+                this.freeCount++;
+            } else {
+                int bucket = hash(this.varOf[n], this.loOf[n], this.hiOf[n])
+                        & mask;
+                this.next[n] = this.buckets[bucket];
+                this.buckets[bucket] = n;
+            }
+        }
+    }
+
+    /**
+     * Reports the number of live nodes in {@code this}, counting the leaf.
+     *
+     * @return the number of live nodes
+     */
+    public int nodeCount() {
+        return this.size - this.freeCount;
+    }
+
+    /**
+     * Reports the number of nodes reachable from edge {@code root}, counting
+     * the leaf.
+     *
+     * @param root
+     *            the edge
+     * @return the size of the DAG rooted at root
+     * @requires root is live in this
+     */
+    int dagSize(int root) {
+        this.clearMarks();
+        int[] pending = this.stack;
+        int top = 0;
+        int count = 0;
+        pending[top] = root >>> 1;
+        top++;
+        while (top > 0) {
+            top--;
+            int n = pending[top];
+            if (!this.isMarked(n)) {
+                this.mark(n, 0);
+                count++;
+                if (n != 0) {
+                    pending[top] = this.loOf[n] >>> 1;
+                    pending[top + 1] = this.hiOf[n] >>> 1;
+                    top += 2;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Starts a new traversal of {@code this}: unmarks every node, in constant
+     * time. Marks are kept beside the node store, so a traversal allocates
+     * nothing; only one traversal may be in progress at a time.
+     *
+     * @updates this
+     * @ensures [no node of this is marked]
+     */
+    void clearMarks() {
+        this.markStamp++;
+        if (this.markStamp == 0) {
+            // The stamp wrapped around, so old stamps could be mistaken
+            Arrays.fill(this.markOf, 0);
+            this.markStamp = 1;
+        }
+    }
+
+    /**
+     * Reports whether node {@code n} has been marked since the last call to
+     * {@code clearMarks}.
+     *
+     * @param n
+     *            the node ID
+     * @return true iff n is marked
+     * @requires 0 <= n < [capacity of this]
+     */
+    boolean isMarked(int n) {
+        return this.markOf[n] == this.markStamp;
+    }
+
+    /**
+     * Marks node {@code n} and records {@code value} for it.
+     *
+     * @param n
+     *            the node ID
+     * @param value
+     *            the value to record
+     * @updates this
+     * @requires 0 <= n < [capacity of this]
+     * @ensures isMarked(n) and markValue(n) = value
+     */
+    void mark(int n, int value) {
+        this.markOf[n] = this.markStamp;
+        this.markValueOf[n] = value;
+    }
+
+    /**
+     * Reports the value recorded when node {@code n} was marked.
+     *
+     * @param n
+     *            the node ID
+     * @return the value recorded for n
+     * @requires isMarked(n)
+     */
+    int markValue(int n) {
+        assert this.isMarked(n) : "Violation of: n is marked";
+
+        return this.markValueOf[n];
+    }
+
+    /*
+     * Computed table ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the computed table shared by all operations on {@code this}.
+     * Entries are discarded whenever nodes are reclaimed.
+     *
+     * @return the computed table
+     */
+    ComputedTable cache() {
+        return this.cache;
+    }
+
+    /**
+     * Returns the computed table shared by all if-then-else operations on
+     * {@code this}. Entries are discarded whenever nodes are reclaimed.
+     *
+     * @return the if-then-else computed table
+     */
+    ComputedTable iteCache() {
+        return this.iteCache;
+    }
+
+    /**
+     * Returns a small non-negative integer naming the variable order
+     * {@code order}, for use in computed-table keys of operations whose result
+     * depends on the order or on a sequence of variables.
+     *
+     * @param order
+     *            the variable order
+     * @return the ID of order
+     * @updates this.orderIds
+     * @ensures [orderId is the same for equal orders and differs for distinct
+     *          orders]
+     */
+    int orderId(VariableOrder order) {
+        Integer id = this.orderIds.get(order);
+        if (id == null) {
+            id = this.orderIds.size();
+            this.orderIds.put(order, id);
+        }
+
+        return id;
+    }
+
+    /*
+     * Garbage collection -----------------------------------------------------
+     */
+
+    /**
+     * Records {@code s} as a structure whose root must survive collection.
+     *
+     * @param s
+     *            the structure
+     * @updates this.handles
+     * @ensures this.handles = #this.handles union {s}
+     */
+    void register(BooleanStructure2 s) {
+        if (this.handles.size() >= this.handlesLimit) {
+            this.pruneHandles();
+            this.handlesLimit = Math.max(INITIAL_HANDLES_LIMIT,
+                    2 * this.handles.size());
+        }
+        this.handles.add(new WeakReference<BooleanStructure2>(s));
+    }
+
+    /**
+     * Drops the handles of structures that have been reclaimed or have moved
+     * to another manager, keeping the others in order.
+     *
+     * @updates this.handles
+     * @ensures <pre>
+     * this.handles = { s: BooleanStructure2 where
+     *                    (s is in #this.handles and s.manager = this) (s) }
+     * </pre>
+     */
+    private void pruneHandles() {
+        int live = 0;
+        for (WeakReference<BooleanStructure2> h : this.handles) {
+            BooleanStructure2 s = h.get();
+            if (s != null && s.manager() == this) {
+                this.handles.set(live, h);
+                live++;
+            }
+        }
+        this.handles.subList(live, this.handles.size()).clear();
+    }
+
+    /**
+     * Reclaims all nodes unreachable from the roots of live handles if the
+     * number of live nodes exceeds the collection threshold. Must only be
+     * called when every node still needed is reachable from a handle.
+     *
+     * @updates this
+     */
+    void maybeCollect() {
+        if (this.nodeCount() > this.gcThreshold) {
+            this.collect();
+            this.gcThreshold = Math.max(this.gcThreshold,
+                    2 * this.nodeCount());
+        }
+    }
+
+    /**
+     * Reclaims all nodes unreachable from the roots of live handles, and
+     * empties the computed tables. Must only be called when every node still
+     * needed is reachable from a handle.
+     *
+     * @updates this
+     * @ensures [this.nodes contains exactly the leaf and the nodes reachable
+     *          from the roots of this.handles]
+     */
+    void collect() {
+        boolean[] marked = new boolean[this.size];
+        marked[0] = true;
+
+        // Mark from the root of every live handle, dropping dead handles
+        this.pruneHandles();
+        this.handlesLimit = Math.max(INITIAL_HANDLES_LIMIT,
+                2 * this.handles.size());
+        int[] pending = new int[this.size + this.handles.size()];
+        int top = 0;
+        for (WeakReference<BooleanStructure2> h : this.handles) {
+            BooleanStructure2 s = h.get();
+            if (s != null && s.manager() == this) {
+                pending[top] = s.rootID() >>> 1;
+                top++;
+            }
+        }
+        while (top > 0) {
+            top--;
+            int n = pending[top];
+            if (!marked[n]) {
+                marked[n] = true;
+                pending[top] = this.loOf[n] >>> 1;
+                pending[top + 1] = this.hiOf[n] >>> 1;
+                top += 2;
+            }
+        }
+
+        // Sweep unmarked nodes onto the free list
+        this.rehash(marked);
+
+        this.cache.clear();
+        this.iteCache.clear();
+        this.orderIds.clear();
+        this.collections++;
+    }
+
+    /**
+     * Reports the number of collections performed by {@code this}.
+     *
+     * @return the number of collections
+     */
+    public int collections() {
+        return this.collections;
+    }
+
+    /*
+     * Dynamic reordering -----------------------------------------------------
+     */
+
+    /**
+     * Enables automatic sifting of the partial results of {@code setFromTree}
+     * and {@code setFromCNF}, checked after each of their conjunctions and
+     * disjunctions, once the number of live nodes exceeds {@code threshold},
+     * or disables it if {@code threshold} is 0. After each automatic sifting
+     * the threshold is raised to twice the number of live nodes, if that is
+     * larger.
+     *
+     * @param threshold
+     *            number of live nodes above which sifting runs, or 0
+     * @updates this
+     * @requires threshold >= 0
+     */
+    public void setReorderThreshold(int threshold) {
+        assert threshold >= 0 : "Violation of: threshold >= 0";
+
+        this.reorderThreshold = threshold;
+    }
+
+    /**
+     * Reports whether automatic sifting should run now.
+     *
+     * @return true iff automatic reordering is on and the number of live
+     *         nodes exceeds its threshold
+     */
+    boolean reorderDue() {
+        return this.reorderThreshold > 0
+                && this.nodeCount() > this.reorderThreshold;
+    }
+
+    /**
+     * Records a sifting pass that changed a diagram of {@code before} nodes
+     * into one of {@code after} nodes in {@code nanos} nanoseconds, and
+     * raises the automatic reordering threshold if it is on.
+     *
+     * @param before
+     *            the size of the diagram before sifting
+     * @param after
+     *            the size of the diagram after sifting
+     * @param nanos
+     *            the time spent sifting
+     * @updates this
+     */
+    void recordReorder(int before, int after, long nanos) {
+        this.reorderings++;
+        this.reorderNodesSaved += before - after;
+        this.reorderNanos += nanos;
+        if (this.reorderThreshold > 0) {
+            this.reorderThreshold = Math.max(this.reorderThreshold,
+                    2 * this.nodeCount());
+        }
+    }
+
+    /**
+     * Reports the number of sifting passes performed on structures of
+     * {@code this}.
+     *
+     * @return the number of sifting passes
+     */
+    public int reorderings() {
+        return this.reorderings;
+    }
+
+    /**
+     * Reports the total decrease in diagram size achieved by sifting
+     * structures of {@code this}.
+     *
+     * @return the number of nodes saved by sifting
+     */
+    public long reorderNodesSaved() {
+        return this.reorderNodesSaved;
+    }
+
+    /**
+     * Reports the total time spent sifting structures of {@code this}.
+     *
+     * @return the time spent sifting, in milliseconds
+     */
+    public long reorderTimeMillis() {
+        return this.reorderNanos / 1000000L;
+    }
+
+}
@@ -4,5 +4,5 @@ package components.booleanstructure;
  * Enum to represent binary operators.
  */
 public enum BinaryOperator {
-    AND, OR, EQUIVALS
+    AND, OR, EQUIVALS, XOR, NAND, NOR, IMPLIES, DIFF
 }
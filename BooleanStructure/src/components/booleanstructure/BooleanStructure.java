@@ -3,6 +3,11 @@ package components.booleanstructure;
 /**
  * {@code BooleanStructureKernel} enhanced with secondary methods.
  */
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.Map;
+
 import components.set.Set;
 
 /**
@@ -29,6 +34,47 @@ import components.set.Set;
  * for all p: ASSIGNMENT where ( p is subset of entries(result.vars) )
  *   ( p is in result.sat iff EVALUATION(m, p) )
  *
+ * QUANTIFICATION(
+ *   result: BOOLEAN_STRUCTURE,
+ *   m: BOOLEAN_STRUCTURE,
+ *   v: set of integer,
+ *   existential: boolean
+ *  ): boolean is
+ * VARIABLES(result) = VARIABLES(m) \ v and
+ * IS_COMPATIBLE_ORDERING(result.vars, m.vars) and
+ * for all p: ASSIGNMENT where ( p is subset of entries(result.vars) )
+ *   ( p is in result.sat iff
+ *     ( ( if existential then
+ *           there exists q: ASSIGNMENT where ( q is subset of v )
+ *             ( EVALUATION(m, p union q) ) ) and
+ *       ( if not existential then
+ *           for all q: ASSIGNMENT where ( q is subset of v )
+ *             ( EVALUATION(m, p union q) ) ) ) )
+ *
+ * SIMPLIFICATION(
+ *   result: BOOLEAN_STRUCTURE,
+ *   m: BOOLEAN_STRUCTURE,
+ *   c: BOOLEAN_STRUCTURE
+ *  ): boolean is
+ * for all p: ASSIGNMENT
+ *     where ( p is subset of VARIABLES(m) union VARIABLES(c) and
+ *             EVALUATION(c, p) )
+ *   ( EVALUATION(result, p) iff EVALUATION(m, p) )
+ *
+ * SUBSTITUTION(
+ *   result: BOOLEAN_STRUCTURE,
+ *   m: BOOLEAN_STRUCTURE,
+ *   s: function from integer to BOOLEAN_STRUCTURE
+ *  ): boolean is
+ * VARIABLES(result) =
+ *   (VARIABLES(m) \ DOMAIN(s)) union
+ *   (union over v in DOMAIN(s) of VARIABLES(s(v))) and
+ * for all p: ASSIGNMENT where ( p is subset of VARIABLES(result) )
+ *   ( EVALUATION(result, p) iff
+ *     EVALUATION(m, (p \ DOMAIN(s)) union
+ *                   { v: integer where ( v is in DOMAIN(s) and
+ *                                        EVALUATION(s(v), p) ) (v) }) )
+ *
  * EQUIVALENT(
  *   m: BOOLEAN_STRUCTURE,
  *   n: BOOLEAN_STRUCTURE,
@@ -97,6 +143,31 @@ public interface BooleanStructure extends BooleanStructureKernel {
      */
     void disj(BooleanStructure other);
 
+    /**
+     * Updates {@code this} to the structure that agrees with {@code g} where
+     * {@code this} is true and with {@code h} where {@code this} is false
+     * (if-then-else), without specifying a total order of variables.
+     *
+     * @param g
+     *            the structure selected where this is true
+     * @param h
+     *            the structure selected where this is false
+     * @updates this
+     * @requires <pre>
+     *      there exists order: string of integer
+     *          (IS_COMPATIBLE_ORDERING(this.vars, order) and
+     *           IS_COMPATIBLE_ORDERING(g.vars, order) and
+     *           IS_COMPATIBLE_ORDERING(h.vars, order))
+     * </pre>
+     * @ensures <pre>
+     *      ITE_APPLY(this, #this, g, h) and
+     *      IS_COMPATIBLE_ORDERING(#this.vars, this.vars) and
+     *      IS_COMPATIBLE_ORDERING(g.vars, this.vars) and
+     *      IS_COMPATIBLE_ORDERING(h.vars, this.vars)
+     * </pre>
+     */
+    void ite(BooleanStructure g, BooleanStructure h);
+
     /**
      * Add the variables in {@code newVars} to {@code this}.
      *
@@ -110,6 +181,144 @@ public interface BooleanStructure extends BooleanStructureKernel {
      */
     void expand(Set<Integer> newVars);
 
+    /**
+     * Existentially quantifies the variables in {@code vars} out of
+     * {@code this}, removing them from its variables.
+     *
+     * @param vars
+     *            variables to be quantified
+     * @updates this
+     * @requires vars is subset of VARIABLES(this)
+     * @ensures <pre>
+     *      QUANTIFICATION(this, #this, vars, true)
+     * </pre>
+     */
+    void exists(Set<Integer> vars);
+
+    /**
+     * Universally quantifies the variables in {@code vars} out of
+     * {@code this}, removing them from its variables.
+     *
+     * @param vars
+     *            variables to be quantified
+     * @updates this
+     * @requires vars is subset of VARIABLES(this)
+     * @ensures <pre>
+     *      QUANTIFICATION(this, #this, vars, false)
+     * </pre>
+     */
+    void forall(Set<Integer> vars);
+
+    /**
+     * Conjoins {@code other} to {@code this} and existentially quantifies the
+     * variables in {@code vars} out of the result (the relational product),
+     * without specifying a total order of the remaining variables.
+     *
+     * @param other
+     *            the {@code BooleanStructure} the conjunction is being
+     *            performed with
+     * @param vars
+     *            variables to be quantified
+     * @updates this
+     * @requires <pre>
+     *      IS_COMPATIBLE_ORDERING(this.vars, other.vars) and
+     *      vars is subset of VARIABLES(this) union VARIABLES(other)
+     * </pre>
+     * @ensures <pre>
+     *      there exists p: BOOLEAN_STRUCTURE
+     *        ( BINARY_APPLY(p, #this, other, AND) and
+     *          IS_COMPATIBLE_ORDERING(#this.vars, p.vars) and
+     *          IS_COMPATIBLE_ORDERING(other.vars, p.vars) and
+     *          QUANTIFICATION(this, p, vars, true) )
+     * </pre>
+     */
+    void andExists(BooleanStructure other, Set<Integer> vars);
+
+    /**
+     * Replaces {@code this} by its generalized cofactor with respect to
+     * {@code care} (constrain): a structure that agrees with {@code this}
+     * wherever {@code care} is true, and elsewhere takes the value of
+     * {@code this} at a nearest point of {@code care} in the combined order.
+     * The result is false if {@code care} is unsatisfiable.
+     *
+     * @param care
+     *            the care set
+     * @updates this
+     * @requires IS_COMPATIBLE_ORDERING(this.vars, care.vars)
+     * @ensures <pre>
+     *      SIMPLIFICATION(this, #this, care) and
+     *      VARIABLES(this) = VARIABLES(#this) union VARIABLES(care) and
+     *      IS_COMPATIBLE_ORDERING(#this.vars, this.vars) and
+     *      IS_COMPATIBLE_ORDERING(care.vars, this.vars) and
+     *      [this is the generalized cofactor of #this by care, as defined by
+     *       Coudert and Madre, for the order this.vars]
+     * </pre>
+     */
+    void constrain(BooleanStructure care);
+
+    /**
+     * Simplifies {@code this} against the care set {@code care} (the
+     * Coudert-Madre restrict operator): {@code this} keeps its value wherever
+     * {@code care} is true, and elsewhere is chosen so that its diagram
+     * tests no variable {@code #this} does not depend on. The result is false
+     * if {@code care} is unsatisfiable.
+     *
+     * @param care
+     *            the care set
+     * @updates this
+     * @requires IS_COMPATIBLE_ORDERING(this.vars, care.vars)
+     * @ensures <pre>
+     *      SIMPLIFICATION(this, #this, care) and
+     *      this.vars = #this.vars and
+     *      [this is the restriction of #this by care, as defined by Coudert
+     *       and Madre, for an order compatible with this.vars and care.vars]
+     * </pre>
+     */
+    void simplify(BooleanStructure care);
+
+    /**
+     * Substitutes {@code g} for the variable {@code var} in {@code this}
+     * (functional composition).
+     *
+     * @param var
+     *            the variable being replaced
+     * @param g
+     *            the structure substituted for var
+     * @updates this
+     * @requires <pre>
+     *      var is in VARIABLES(this) and
+     *      IS_COMPATIBLE_ORDERING(this.vars, g.vars)
+     * </pre>
+     * @ensures <pre>
+     *      SUBSTITUTION(this, #this, {(var, g)}) and
+     *      IS_COMPATIBLE_ORDERING(#this.vars, this.vars) and
+     *      IS_COMPATIBLE_ORDERING(g.vars, this.vars)
+     * </pre>
+     */
+    void compose(int var, BooleanStructure g);
+
+    /**
+     * Substitutes, simultaneously, {@code map.get(v)} for every variable
+     * {@code v} of {@code map.keySet()} in {@code this}.
+     *
+     * @param map
+     *            the structure substituted for each variable
+     * @updates this
+     * @requires <pre>
+     *      map.keySet() is subset of VARIABLES(this) and
+     *      for all v, w: integer where ( v, w are in map.keySet() )
+     *        ( IS_COMPATIBLE_ORDERING(this.vars, map.get(v).vars) and
+     *          IS_COMPATIBLE_ORDERING(map.get(v).vars, map.get(w).vars) )
+     * </pre>
+     * @ensures <pre>
+     *      SUBSTITUTION(this, #this, map) and
+     *      IS_COMPATIBLE_ORDERING(#this.vars, this.vars) and
+     *      for all v: integer where ( v is in map.keySet() )
+     *        ( IS_COMPATIBLE_ORDERING(map.get(v).vars, this.vars) )
+     * </pre>
+     */
+    void composeAll(Map<Integer, BooleanStructure> map);
+
     /**
      * Return a string corresponding to the truth table for {@code this}. The
      * header is the order sequence, followed by the body of the truth table.
@@ -136,6 +345,39 @@ public interface BooleanStructure extends BooleanStructureKernel {
      */
     String toStringTT();
 
+    /**
+     * Writes the truth table for {@code this} to {@code out}, in the format of
+     * {@code toStringTT()}, one row at a time, so that no string holding the
+     * whole table is built.
+     *
+     * @param out
+     *            the destination of the truth table
+     * @throws IOException
+     *             if out cannot be appended to
+     * @updates out
+     * @requires |this.vars| < 64
+     * @ensures out = #out * toStringTT()
+     */
+    void toStringTT(Appendable out) throws IOException;
+
+    /**
+     * Return a string listing the satisfying assignments of {@code this} as
+     * cubes, without enumerating the assignments themselves. The cubes are the
+     * paths to true of the reduced decision diagram of {@code this} in the
+     * order of {@code this.vars}, those taking the true branch of a variable
+     * first. Each cube lists the variables tested on its path, in order, with
+     * the variables it sets to false prefixed by "~"; variables that are not
+     * listed may take either value.
+     *
+     * For example, for "1 2 and 3 or" under the order {@code <1,2,3>}, the
+     * string is <pre>
+     * ( {{1,2},{1,~2,3},{~1,3}}, <1,2,3> )
+     * </pre>
+     *
+     * @return the string listing the cubes of this
+     */
+    String toStringCubes();
+
     /**
      * Reports whether {@code this} is satisfiable; that is, if there is an
      * assignment for which {@code this} evaluates to true
@@ -156,6 +398,29 @@ public interface BooleanStructure extends BooleanStructureKernel {
      */
     boolean isValid();
 
+    /**
+     * Reports the number of assignments to the variables of {@code this} for
+     * which {@code this} evaluates to true.
+     *
+     * @return the number of satisfying assignments of this
+     * @ensures satCount = | this.sat |
+     */
+    BigInteger satCount();
+
+    /**
+     * Reports the base 2 logarithm of the number of assignments to the
+     * variables of {@code this} for which {@code this} evaluates to true.
+     *
+     * @return the log (base 2) of the number of satisfying assignments of
+     *         this, or negative infinity if there are none
+     * @ensures <pre>
+     *      if | this.sat | = 0
+     *        then satCountLog2 = -infinity
+     *        else 2 ^ (satCountLog2) ~ | this.sat |
+     * </pre>
+     */
+    double satCountLog2();
+
     /**
      * Reports whether {@code this} is logically equivalent to {@code other}.
      *
@@ -200,6 +465,110 @@ public interface BooleanStructure extends BooleanStructureKernel {
      */
     void setFromTree(SyntaxTree st);
 
+    /**
+     * Sets the structure to represent the SyntaxTree {@code st}, conjoining
+     * the operands of each chain of "and" nodes in the order given by
+     * {@code schedule}. {@code setFromTree(st)} is the {@code LINEAR}
+     * schedule.
+     *
+     * @param st
+     *            the syntax tree
+     * @param schedule
+     *            the order in which conjuncts are conjoined
+     * @replaces this
+     * @ensures [this represents the propositional formula expressed in st]
+     */
+    void setFromTree(SyntaxTree st, ConjunctionSchedule schedule);
+
+    /**
+     * Sets the structure to represent the SyntaxTree {@code st}, as
+     * {@code setFromTree(st, schedule)} does, except that a variable order
+     * is first computed from {@code st} by {@code heuristic} and every
+     * intermediate structure follows that order.
+     *
+     * @param st
+     *            the syntax tree
+     * @param schedule
+     *            the order in which conjuncts are conjoined
+     * @param heuristic
+     *            the heuristic computing the variable order
+     * @replaces this
+     * @ensures <pre>
+     * [this represents the propositional formula expressed in st] and
+     * IS_COMPATIBLE_ORDERING(this.vars, StaticOrder.fromTree(st, heuristic))
+     * </pre>
+     */
+    void setFromTree(SyntaxTree st, ConjunctionSchedule schedule,
+            OrderingHeuristic heuristic);
+
+    /**
+     * Sets the structure to represent the formula in DIMACS CNF format read
+     * from {@code in}. Clauses are read and conjoined one at a time, so no
+     * syntax tree is built and memory is bounded by the structures rather
+     * than by the length of the input. Comment lines and the problem line are
+     * skipped, and reading stops at the end of {@code in} or at a line
+     * starting with "%".
+     *
+     * @param in
+     *            the source of the formula
+     * @throws IOException
+     *             if in cannot be read
+     * @updates in
+     * @replaces this
+     * @requires [in holds a formula in DIMACS CNF format]
+     * @ensures [this represents the conjunction of the clauses read from in]
+     */
+    void setFromCNF(Reader in) throws IOException;
+
+    /**
+     * Sets the structure to represent the formula in DIMACS CNF format read
+     * from {@code in}, conjoining its clauses in the order given by
+     * {@code schedule}. {@code setFromCNF(in)} is the {@code LINEAR}
+     * schedule. The {@code BALANCED} schedule still reads clauses one at a
+     * time and keeps a logarithmic number of partial results; the
+     * {@code SMALLEST_FIRST} schedule keeps every clause until all are read.
+     *
+     * @param in
+     *            the source of the formula
+     * @param schedule
+     *            the order in which clauses are conjoined
+     * @throws IOException
+     *             if in cannot be read
+     * @updates in
+     * @replaces this
+     * @requires [in holds a formula in DIMACS CNF format]
+     * @ensures [this represents the conjunction of the clauses read from in]
+     */
+    void setFromCNF(Reader in, ConjunctionSchedule schedule)
+            throws IOException;
+
+    /**
+     * Sets the structure to represent the formula in DIMACS CNF format read
+     * from {@code in}, as {@code setFromCNF(in, schedule)} does, except that
+     * a variable order is first computed from the clauses by
+     * {@code heuristic} and every intermediate structure follows that order.
+     * The clauses are therefore all read before any of them is conjoined.
+     *
+     * @param in
+     *            the source of the formula
+     * @param schedule
+     *            the order in which clauses are conjoined
+     * @param heuristic
+     *            the heuristic computing the variable order
+     * @throws IOException
+     *             if in cannot be read
+     * @updates in
+     * @replaces this
+     * @requires [in holds a formula in DIMACS CNF format]
+     * @ensures <pre>
+     * [this represents the conjunction of the clauses read from in] and
+     * IS_COMPATIBLE_ORDERING(this.vars,
+     *   StaticOrder.fromClauses([the clauses read from in], heuristic))
+     * </pre>
+     */
+    void setFromCNF(Reader in, ConjunctionSchedule schedule,
+            OrderingHeuristic heuristic) throws IOException;
+
     /**
      * Returns an assignment which makes {@code this} evaluate to true
      *
@@ -209,4 +578,16 @@ public interface BooleanStructure extends BooleanStructureKernel {
      */
     Set<Integer> satAssignment();
 
+    /**
+     * Replaces {@code a} by an assignment which makes {@code this} evaluate to
+     * true, so that callers can reuse one set across calls.
+     *
+     * @param a
+     *            the set to hold the satisfying assignment
+     * @replaces a
+     * @requires SATISFIABLE(this)
+     * @ensures a is in this.sat
+     */
+    void satAssignment(Set<Integer> a);
+
 }
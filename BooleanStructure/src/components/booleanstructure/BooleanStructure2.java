@@ -1,17 +1,23 @@
 package components.booleanstructure;
 
-import java.util.Iterator;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
 
-import components.map.Map;
-import components.map.Map4;
 import components.sequence.Sequence;
 import components.sequence.Sequence1L;
 import components.set.Set;
-import components.set.Set4;
 
 /**
  * {@code BooleanStructure} represented as a Binary Decision Diagram, with
- * implementations of primary methods.
+ * implementations of primary methods. The nodes of the diagram live in a
+ * {@code BDDManager} that may be shared with other structures; a structure is
+ * a handle naming the edge to its root node in that manager. Edges carry a
+ * complement tag, so negation only flips the tag of the root and a function
+ * shares every node with its negation.
  *
  * @mathdefinitions <pre>
  * POWERSET(
@@ -19,105 +25,50 @@ import components.set.Set4;
  * ): set of set of integer is
  * { s: set of integer where (s is subset of e) (s) }
  *
- * INTERVAL(
- *   n: integer
- * ) string of integer satisfies
- * | INTERVAL(n) | = n and
- * for all i: integer where (0 <= i < n) (INTERVAL(n)[i] = i)
- *
- * ROOT_DEPTH(
- *   bdd: string of string of NODE
- * ): integer satisfies
- * if (there exists d: integer where (0 < d < | bdd |)
- *     ( (| bdd[d] | > 0) and (for all e: integer where (| bdd[e] | > 0) (d >= e))) )
- *    then ROOT_DEPTH(bdd) = d
- * else
- *   ROOT_DEPTH(bdd) = 0
- *
- * BDD_CONTAINS_NODE(
- *   bdd: string of string of NODE,
- *   n : NODE): boolean is
- * there exists i: integer (n is element of entries(bdd[i]))
- *
- * BDD_CONTAINS_COORD(
- *   bdd: string of string of NODE,
- *   c: COORD
- *   root: COORD): boolean is
- * if root.depth = 0 then root = c
- * else
- *   ( c.depth = 0 and 0 <= c.index < 2 ) or
- *   ( 1 <= c.depth < | bdd | and 0 <= c.index < | bdd[c.depth] | )
- *
  * EVALUATE_BDD(
- *   bdd: string of string of NODE,
- *   root: COORD,
- *   vars: string of integer,
- *   trueFirst: boolean,
+ *   m: BDDManager,
+ *   n: integer,
  *   a: ASSIGNMENT): boolean satisfies
- * ( if root.depth = 0 then trueFirst iff ( root.index = 0) ) and
- * ( if vars[| vars | - root.depth] is in a then
- *     EVALUATE_BDD(bdd, bdd[root.depth][root.index].hi, vars, a) ) and
- * ( if vars[| vars | - root.depth] is not in a then
- *     EVALUATE_BDD(bdd, bdd[root.depth][root.index].lo, vars, a) )
- *
- * OBDD_CONVENTIONS(
- *   bdd: string of string of NODE,
- *   root: COORD,
- *   vars: string of integer
- * ): boolean is
- * ( root.index = 0 ) and
- *
- * ( | bdd[root.depth] | = 1 iff root.depth > 0 ) and
- *
- * ( | vars | = | entries(vars) | ) and
- *
- * ( | bdd | = | vars | + 1 ) and
- *
- * ( bdd[0] = <> ) and
- *
- * ( for all i: integer where (root.depth < i < | bdd |) (bdd[i] = <>) ) and
- *
- * ( for all d, i: integer where (BDD_CONTAINS_COORD(bdd, (d, i), root) and d > 0)
- *     ( BDD_CONTAINS_COORD(bdd, bdd[d][i].hi, root))  and
- *     ( BDD_CONTAINS_COORD(bdd, bdd[d][i].lo, root))  and
- *     ( bdd[d][i].hi.depth < d and bdd[d][i].lo.depth < d) ) and
+ * ( if n = FALSE then EVALUATE_BDD(m, n, a) = false ) and
+ * ( if n = TRUE then EVALUATE_BDD(m, n, a) = true ) and
+ * [m.lo(n) and m.hi(n) are the cofactors of edge n, with its complement tag
+ *  already applied] and
+ * ( if n is not a leaf and m.var(n) is in a then
+ *     EVALUATE_BDD(m, n, a) = EVALUATE_BDD(m, m.hi(n), a) ) and
+ * ( if n is not a leaf and m.var(n) is not in a then
+ *     EVALUATE_BDD(m, n, a) = EVALUATE_BDD(m, m.lo(n), a) )
  *
- * ( for all d, i: integer where (BDD_CONTAINS_COORD(bdd, (d, i), root))
- *     ( there exists path: string of COORD
- *       ( path[0] = root and
- *         path[|path| - 1] = (d, i) and
- *         for all j where (0 <= j < |path| - 1)
- *           (bdd[path[j].depth][path[j].index].hi = path[j + 1] or
- *            bdd[path[j].depth][path[j].index].lo = path[j + 1])
- *       )
- *     )
- *  )
+ * RANK(
+ *   vars: string of integer,
+ *   v: integer
+ * ): integer satisfies
+ * if v is in entries(vars) then vars[RANK(vars, v), RANK(vars, v) + 1) = <v>
+ *   else RANK(vars, v) = | vars |
  *
- * ROBDD_CONVENTIONS(
- *   bdd: string of string of NODE,
- *   root: COORD,
+ * IS_ORDERED(
+ *   m: BDDManager,
+ *   n: integer,
  *   vars: string of integer
  * ): boolean is
- * ( OBDD_CONVENTIONS(bdd, root, vars) and
- *
- * ( for all n: NODE where (BDD_CONTAINS_NODE(bdd, n))
- *   ( n.hi != n.lo ) ) and
- *
- * ( for all d : integer where (0 <= d <= root.depth)
- *	 ( for all i, j: integer where (0 <= i < |bdd[d]| and 0 <= j < |bdd[d]|)
- *       ( if bdd[d][i].hi = bdd[d][j].hi and bdd[d][i].lo = bdd[d][j].lo then i = j )
- *   ) )
+ * n is a leaf or
+ * ( m.var(n) is in entries(vars) and
+ *   RANK(vars, m.var(n)) < RANK(vars, m.var(m.lo(n))) and
+ *   RANK(vars, m.var(n)) < RANK(vars, m.var(m.hi(n))) and
+ *   IS_ORDERED(m, m.lo(n), vars) and
+ *   IS_ORDERED(m, m.hi(n), vars) )
  * </pre>
  *
  * @convention <pre>
- * ROBDD_CONVENTIONS($this.bdd, $this.root, $this.vars)
+ * $this.root is live in $this.manager and
+ * | $this.vars | = | entries($this.vars) | and
+ * IS_ORDERED($this.manager, $this.root, $this.vars)
  * </pre>
  *
  * @correspondence <pre>
  * this =
  *   ( { a: ASSIGNMENT where
  *       ( a is in POWERSET(entries($this.vars)) and
- *         EVALUATE_BDD($this.bdd, $this.root, $this.vars, $this.trueFirst, a) )
+ *         EVALUATE_BDD($this.manager, $this.root, a) )
  *     ( a ) },
  *     $this.vars )
  * </pre>
@@ -125,630 +76,1325 @@ import components.set.Set4;
 
 public class BooleanStructure2 extends BooleanStructureSecondary {
 
+    /*
+     * Computed-table operation codes. Every code is combined with the ID of
+     * the variable order in effect by cacheCode, since the shape of a result
+     * depends on the order.
+     */
+
     /**
-     * Coord helper class
-     *
-     * @mathmodel type COORD is modeled by (depth: integer, index: integer)
-     *
-     * @correspondence this = ($this.depth, $this.index)
+     * Number of codes used by binary apply: one per operator. Operands are
+     * normalized before lookup, so no code depends on their polarity.
      */
-    private static class Coord {
+    private static final int APPLY_CODES = BinaryOperator.values().length;
 
-        // Row of element
-        public int depth;
+    /**
+     * Code used by if-then-else, in the manager's if-then-else table.
+     */
+    private static final int ITE_CODE = APPLY_CODES;
 
-        // Column of element
-        public int index;
+    /**
+     * Code used by existential quantification.
+     */
+    private static final int EXISTS_CODE = ITE_CODE + 1;
 
-        public Coord(int depth, int index) {
-            this.depth = depth;
-            this.index = index;
-        }
+    /**
+     * Code used by the relational product, in the manager's if-then-else
+     * table.
+     */
+    private static final int AND_EXISTS_CODE = EXISTS_CODE + 1;
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == this) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (!(obj instanceof Coord)) {
-                return false;
-            }
+    /**
+     * Code used by restriction.
+     */
+    private static final int RESTRICT_CODE = AND_EXISTS_CODE + 1;
 
-            Coord a = (Coord) obj;
+    /**
+     * Code used by the generalized cofactor.
+     */
+    private static final int CONSTRAIN_CODE = RESTRICT_CODE + 1;
 
-            return this.depth == a.depth && this.index == a.index;
-        }
+    /**
+     * Code used by simplification against a care set.
+     */
+    private static final int SIMPLIFY_CODE = CONSTRAIN_CODE + 1;
 
-        @Override
-        public int hashCode() {
-            int result = 2;
-            result = 37 * result + this.depth;
-            result = 37 * result + this.index;
+    /**
+     * Total number of operation codes.
+     */
+    private static final int NUM_CODES = SIMPLIFY_CODE + 1;
 
-            return result;
-        }
+    /**
+     * Factor by which a diagram may grow while a variable is sifted in one
+     * direction before sifting in that direction stops.
+     */
+    private static final double MAX_GROWTH = 1.2;
 
-        @Override
-        public String toString() {
-            return "(" + this.depth + ", " + this.index + ")";
-        }
-    }
+    /*
+     * Private members
+     */
+    private BDDManager manager;
+    private int root;
+    private Sequence<Integer> vars;
+
+    /**
+     * Snapshot of {@code vars}, or null until it is next needed. Every
+     * change to {@code vars} resets it.
+     */
+    private VariableOrder varOrder;
+
+    /*
+     * Private helper methods
+     */
 
     /**
-     * Node helper class
+     * Combines an operation code with the ID of a variable order into a key
+     * for the manager's computed table.
      *
-     * @mathmodel type NODE is modeled by (hi: COORD, lo: COORD)
+     * @param orderId
+     *            the ID of the variable order
+     * @param code
+     *            the operation code
+     * @return the computed-table operator key
+     * @requires orderId >= 0 and 0 <= code < NUM_CODES
+     * @ensures cacheCode >= 0
+     */
+    private static int cacheCode(int orderId, int code) {
+        return orderId * NUM_CODES + code;
+    }
+
+    /**
+     * Reports the position in {@code order} of the variable tested by node
+     * {@code n}.
      *
-     * @correspondence this = ($this.hi, $this.lo)
+     * @param m
+     *            the manager holding n
+     * @param n
+     *            the node
+     * @param order
+     *            the order
+     * @return RANK(order, m.var(n))
      */
-    private static class Node {
+    private static int rankOf(BDDManager m, int n, VariableOrder order) {
+        int rank = order.length();
+        if (!BDDManager.isLeaf(n)) {
+            rank = order.rank(m.var(n));
+        }
 
-        // Location of hi child
-        public Coord hi;
+        return rank;
+    }
 
-        // Location of lo child
-        public Coord lo;
+    /**
+     * Reports the position of the variable tested by node {@code n} in the
+     * permutation of {@code order} that moves the variable at each position
+     * {@code i} of {@code order} to position {@code positions[i]}.
+     *
+     * @param m
+     *            the manager holding n
+     * @param n
+     *            the node
+     * @param order
+     *            the order before the permutation
+     * @param positions
+     *            the permutation
+     * @return the position of m.var(n) after the permutation, or | order | if
+     *         n is a leaf
+     * @requires | positions | = | order |
+     */
+    private static int rankOf(BDDManager m, int n, VariableOrder order,
+            int[] positions) {
+        int rank = positions.length;
+        if (!BDDManager.isLeaf(n)) {
+            rank = positions[order.rank(m.var(n))];
+        }
+
+        return rank;
+    }
 
-        public Node(Coord hi, Coord lo) {
-            this.hi = hi;
-            this.lo = lo;
+    /**
+     * Produces the BDD resulting from applying a logical operator between two
+     * bdds held by the same manager. Every operator is reduced to AND or
+     * EQUIVALS of possibly complemented operands, with the result possibly
+     * complemented (OR, for example, is the negation of the AND of the negated
+     * operands), so each operator costs a single pass of {@code combineBDD}
+     * and all of them share cache entries.
+     *
+     * @param m
+     *            the manager holding both bdds and the result
+     * @param op
+     *            the binary operator being applied between the two bdds
+     * @param f
+     *            the root of the first bdd
+     * @param g
+     *            the root of the second bdd
+     * @param order
+     *            the new order
+     * @param orderId
+     *            the ID in m of the new order
+     * @updates m
+     * @return the root of the resulting bdd
+     * @requires <pre>
+     *   IS_ORDERED(m, f, newVars) and IS_ORDERED(m, g, newVars)
+     * </pre>
+     * @ensures <pre>
+     *   IS_ORDERED(m, applyBDD, newVars) and
+     *   for all a: ASSIGNMENT
+     *     ( EVALUATE_BDD(m, applyBDD, a) =
+     *         [op applied to EVALUATE_BDD(m, f, a) and EVALUATE_BDD(m, g, a)] )
+     * </pre>
+     */
+    private static int applyBDD(BDDManager m, BinaryOperator op, int f, int g,
+            VariableOrder order, int orderId) {
+        int and = cacheCode(orderId, BinaryOperator.AND.ordinal());
+        int equivals = cacheCode(orderId, BinaryOperator.EQUIVALS.ordinal());
+        int result = BDDManager.FALSE;
+        switch (op) {
+            case AND:
+                result = combineBDD(m, f, g, BinaryOperator.AND, order, and);
+                break;
+            case OR:
+                result = BDDManager.complement(combineBDD(m,
+                        BDDManager.complement(f), BDDManager.complement(g),
+                        BinaryOperator.AND, order, and));
+                break;
+            case EQUIVALS:
+                result = combineBDD(m, f, g, BinaryOperator.EQUIVALS, order,
+                        equivals);
+                break;
+            case XOR:
+                result = BDDManager.complement(combineBDD(m, f, g,
+                        BinaryOperator.EQUIVALS, order, equivals));
+                break;
+            case NAND:
+                result = BDDManager.complement(
+                        combineBDD(m, f, g, BinaryOperator.AND, order, and));
+                break;
+            case NOR:
+                result = combineBDD(m, BDDManager.complement(f),
+                        BDDManager.complement(g), BinaryOperator.AND, order,
+                        and);
+                break;
+            case IMPLIES:
+                result = BDDManager.complement(combineBDD(m, f,
+                        BDDManager.complement(g), BinaryOperator.AND, order,
+                        and));
+                break;
+            case DIFF:
+                result = combineBDD(m, f, BDDManager.complement(g),
+                        BinaryOperator.AND, order, and);
+                break;
+            default:
+                assert false : "Apply of unrecognized BinaryOpertor: " + op;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == this) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
+        return result;
+    }
+
+    /**
+     * Produces the BDD resulting from applying AND or EQUIVALS between two
+     * bdds held by the same manager. Both operators are commutative, so the
+     * operands are ordered before the cache is consulted, and for EQUIVALS
+     * complement tags are moved from the operands onto the result.
+     *
+     * @param m
+     *            the manager holding both bdds and the result
+     * @param f
+     *            the root of the first bdd
+     * @param g
+     *            the root of the second bdd
+     * @param op
+     *            the binary operator being applied between the two bdds
+     * @param order
+     *            the new order
+     * @param code
+     *            the computed-table key for op and the order
+     * @updates m
+     * @return the root of the resulting bdd
+     * @requires <pre>
+     *   op is in {AND, EQUIVALS} and
+     *   IS_ORDERED(m, f, newVars) and IS_ORDERED(m, g, newVars)
+     * </pre>
+     * @ensures <pre>
+     *   IS_ORDERED(m, combineBDD, newVars) and
+     *   for all a: ASSIGNMENT
+     *     ( EVALUATE_BDD(m, combineBDD, a) =
+     *         [op applied to EVALUATE_BDD(m, f, a) and EVALUATE_BDD(m, g, a)] )
+     * </pre>
+     */
+    private static int combineBDD(BDDManager m, int f, int g,
+            BinaryOperator op, VariableOrder order, int code) {
+        assert op == BinaryOperator.AND
+                || op == BinaryOperator.EQUIVALS : "Violation of: op is in {AND, EQUIVALS}";
+
+        int result = ComputedTable.MISSING;
+        int tag = 0;
+
+        // Terminal cases
+        if (op == BinaryOperator.AND) {
+            if (f == BDDManager.FALSE || g == BDDManager.FALSE
+                    || f == BDDManager.complement(g)) {
+                result = BDDManager.FALSE;
+            } else if (f == BDDManager.TRUE || f == g) {
+                result = g;
+            } else if (g == BDDManager.TRUE) {
+                result = f;
             }
-            if (!(obj instanceof Node)) {
-                return false;
+        } else {
+            // (not f) equivals g = not (f equivals g)
+            tag = (f ^ g) & 1;
+            f = f & ~1;
+            g = g & ~1;
+            if (f == g) {
+                result = BDDManager.TRUE;
+            } else if (f == BDDManager.TRUE) {
+                result = g;
+            } else if (g == BDDManager.TRUE) {
+                result = f;
             }
+        }
 
-            Node a = (Node) obj;
-            return this.hi.equals(a.hi) && this.lo.equals(a.lo);
+        if (result == ComputedTable.MISSING) {
+            if (f > g) {
+                int temp = f;
+                f = g;
+                g = temp;
+            }
 
-        }
+            result = m.cache().lookup(code, f, g);
+            if (result == ComputedTable.MISSING) {
+                int fRank = rankOf(m, f, order);
+                int gRank = rankOf(m, g, order);
+
+                // Split on the variable with the highest precedence; an
+                // operand that does not test it is passed to both branches
+                int var;
+                int fLo = f;
+                int fHi = f;
+                int gLo = g;
+                int gHi = g;
+                if (fRank <= gRank) {
+                    var = m.var(f);
+                    fLo = m.lo(f);
+                    fHi = m.hi(f);
+                } else {
+                    var = m.var(g);
+                }
+                if (gRank <= fRank) {
+                    gLo = m.lo(g);
+                    gHi = m.hi(g);
+                }
 
-        @Override
-        public int hashCode() {
-            int result = 2;
-            result = 37 * result + this.hi.depth + this.hi.index;
-            result = 37 * result + this.lo.depth + this.lo.index;
+                int lo = combineBDD(m, fLo, gLo, op, order, code);
+                int hi = combineBDD(m, fHi, gHi, op, order, code);
+                result = m.mk(var, lo, hi);
 
-            return result;
+                m.cache().insert(code, f, g, result);
+            }
         }
 
-        @Override
-        public String toString() {
-            return "[" + this.hi.toString() + ", " + this.lo.toString() + "]";
-        }
+        return result ^ tag;
     }
 
     /**
-     * IDPair helper class (used only for reduction algorithm implementation)
+     * Produces the BDD that agrees with {@code g} where {@code f} is true and
+     * with {@code h} where {@code f} is false. Operands are first brought to a
+     * standard triple: arguments equal to f or its negation become constants,
+     * calls that amount to a binary operator are passed to {@code applyBDD},
+     * and the remaining calls have f and g regular, the complement of g being
+     * moved onto the result.
      *
-     * @mathmodel type IDPAIR is modeled by (hiID: integer, loID: integer)
-     *
-     * @correspondence this = ($this.hiID, $this.loID)
+     * @param m
+     *            the manager holding the three bdds and the result
+     * @param f
+     *            the root of the condition
+     * @param g
+     *            the root of the bdd selected where f is true
+     * @param h
+     *            the root of the bdd selected where f is false
+     * @param order
+     *            the new order
+     * @param orderId
+     *            the ID in m of the new order
+     * @updates m
+     * @return the root of the resulting bdd
+     * @requires <pre>
+     *   IS_ORDERED(m, f, newVars) and IS_ORDERED(m, g, newVars) and
+     *   IS_ORDERED(m, h, newVars)
+     * </pre>
+     * @ensures <pre>
+     *   IS_ORDERED(m, iteBDD, newVars) and
+     *   for all a: ASSIGNMENT
+     *     ( EVALUATE_BDD(m, iteBDD, a) =
+     *         [if EVALUATE_BDD(m, f, a) then EVALUATE_BDD(m, g, a)
+     *            else EVALUATE_BDD(m, h, a)] )
+     * </pre>
      */
-    private static class IDPair {
-        // ID of lo child
-        int loID;
-        // ID of hi child
-        int hiID;
-
-        public IDPair(int loID, int hiID) {
-            this.loID = loID;
-            this.hiID = hiID;
+    private static int iteBDD(BDDManager m, int f, int g, int h,
+            VariableOrder order, int orderId) {
+        int notF = BDDManager.complement(f);
+        if (g == f) {
+            g = BDDManager.TRUE;
+        } else if (g == notF) {
+            g = BDDManager.FALSE;
+        }
+        if (h == f) {
+            h = BDDManager.FALSE;
+        } else if (h == notF) {
+            h = BDDManager.TRUE;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == this) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (!(obj instanceof IDPair)) {
-                return false;
+        int result;
+        if (f == BDDManager.TRUE || g == h) {
+            result = g;
+        } else if (f == BDDManager.FALSE) {
+            result = h;
+        } else if (h == BDDManager.FALSE) {
+            result = applyBDD(m, BinaryOperator.AND, f, g, order, orderId);
+        } else if (g == BDDManager.TRUE) {
+            result = applyBDD(m, BinaryOperator.OR, f, h, order, orderId);
+        } else if (g == BDDManager.FALSE) {
+            result = applyBDD(m, BinaryOperator.AND, notF, h, order, orderId);
+        } else if (h == BDDManager.TRUE) {
+            result = applyBDD(m, BinaryOperator.OR, notF, g, order, orderId);
+        } else if (h == BDDManager.complement(g)) {
+            result = applyBDD(m, BinaryOperator.EQUIVALS, f, g, order,
+                    orderId);
+        } else {
+            // ite(not f, g, h) = ite(f, h, g)
+            if ((f & 1) == 1) {
+                f = notF;
+                int temp = g;
+                g = h;
+                h = temp;
             }
+            // ite(f, not g, not h) = not ite(f, g, h)
+            int tag = g & 1;
+            g = g ^ tag;
+            h = h ^ tag;
+
+            int code = cacheCode(orderId, ITE_CODE);
+            result = m.iteCache().lookup(code, f, g, h);
+            if (result == ComputedTable.MISSING) {
+                int rank = Math.min(rankOf(m, f, order),
+                        Math.min(rankOf(m, g, order), rankOf(m, h, order)));
+
+                // Split on the variable with the highest precedence; an
+                // operand that does not test it is passed to both branches
+                int var = 0;
+                int fLo = f;
+                int fHi = f;
+                int gLo = g;
+                int gHi = g;
+                int hLo = h;
+                int hHi = h;
+                if (rankOf(m, f, order) == rank) {
+                    var = m.var(f);
+                    fLo = m.lo(f);
+                    fHi = m.hi(f);
+                }
+                if (rankOf(m, g, order) == rank) {
+                    var = m.var(g);
+                    gLo = m.lo(g);
+                    gHi = m.hi(g);
+                }
+                if (rankOf(m, h, order) == rank) {
+                    var = m.var(h);
+                    hLo = m.lo(h);
+                    hHi = m.hi(h);
+                }
 
-            IDPair i = (IDPair) obj;
+                int lo = iteBDD(m, fLo, gLo, hLo, order, orderId);
+                int hi = iteBDD(m, fHi, gHi, hHi, order, orderId);
+                result = m.mk(var, lo, hi);
 
-            return this.loID == i.loID && this.hiID == i.hiID;
+                m.iteCache().insert(code, f, g, h, result);
+            }
+            result = result ^ tag;
         }
 
-        @Override
-        public int hashCode() {
-            int result = 2;
-            result = 37 * result + this.hiID;
-            result = 37 * result + this.loID;
+        return result;
+    }
 
-            return result;
+    /**
+     * Existentially quantifies the variables marked in {@code quantified} out
+     * of the bdd rooted at {@code n}, in one bottom-up pass. Nodes below the
+     * last quantified variable are returned unchanged.
+     *
+     * @param m
+     *            the manager holding the bdd
+     * @param n
+     *            the root of the bdd
+     * @param quantified
+     *            whether the variable at each position of the order is
+     *            quantified
+     * @param last
+     *            the last position of the order marked in quantified
+     * @param order
+     *            the order
+     * @param orderId
+     *            the ID in m of the order
+     * @param setId
+     *            the ID in m of the quantified variables, in order
+     * @updates m
+     * @return the root of the quantified bdd
+     * @requires IS_ORDERED(m, n, vars)
+     * @ensures <pre>
+     *   IS_ORDERED(m, existsBDD, vars) and
+     *   for all a: ASSIGNMENT where (a intersection Q = empty_set)
+     *     ( EVALUATE_BDD(m, existsBDD, a) =
+     *         there exists q: ASSIGNMENT where (q is subset of Q)
+     *           ( EVALUATE_BDD(m, n, a union q) ) )
+     *   where Q is the set of variables marked in quantified
+     * </pre>
+     */
+    private static int existsBDD(BDDManager m, int n, boolean[] quantified,
+            int last, VariableOrder order, int orderId,
+            int setId) {
+        int result = n;
+        int rank = rankOf(m, n, order);
+        if (rank <= last) {
+            int code = cacheCode(orderId, EXISTS_CODE);
+            result = m.cache().lookup(code, n, setId);
+            if (result == ComputedTable.MISSING) {
+                int lo = existsBDD(m, m.lo(n), quantified, last, order,
+                        orderId, setId);
+                if (quantified[rank]) {
+                    result = BDDManager.TRUE;
+                    if (lo != BDDManager.TRUE) {
+                        int hi = existsBDD(m, m.hi(n), quantified, last, order,
+                                orderId, setId);
+                        result = applyBDD(m, BinaryOperator.OR, lo, hi, order,
+                                orderId);
+                    }
+                } else {
+                    int hi = existsBDD(m, m.hi(n), quantified, last, order,
+                            orderId, setId);
+                    result = m.mk(m.var(n), lo, hi);
+                }
+
+                m.cache().insert(code, n, setId, result);
+            }
         }
 
+        return result;
     }
 
-    /*
-     * Private members
+    /**
+     * Existentially quantifies the variables marked in {@code quantified} out
+     * of the conjunction of the bdds rooted at {@code f} and {@code g}, in one
+     * pass that never builds the conjunction itself. Below the last quantified
+     * variable the pass reduces to a plain conjunction.
+     *
+     * @param m
+     *            the manager holding both bdds and the result
+     * @param f
+     *            the root of the first bdd
+     * @param g
+     *            the root of the second bdd
+     * @param quantified
+     *            whether the variable at each position of the order is
+     *            quantified
+     * @param last
+     *            the last position of the order marked in quantified
+     * @param order
+     *            the order
+     * @param orderId
+     *            the ID in m of the order
+     * @param setId
+     *            the ID in m of the quantified variables, in order
+     * @updates m
+     * @return the root of the resulting bdd
+     * @requires IS_ORDERED(m, f, vars) and IS_ORDERED(m, g, vars)
+     * @ensures <pre>
+     *   IS_ORDERED(m, andExistsBDD, vars) and
+     *   for all a: ASSIGNMENT where (a intersection Q = empty_set)
+     *     ( EVALUATE_BDD(m, andExistsBDD, a) =
+     *         there exists q: ASSIGNMENT where (q is subset of Q)
+     *           ( EVALUATE_BDD(m, f, a union q) and
+     *             EVALUATE_BDD(m, g, a union q) ) )
+     *   where Q is the set of variables marked in quantified
+     * </pre>
      */
-    private Sequence<Sequence<Node>> bdd;
-    private Sequence<Integer> vars;
-    private Coord root;
-    private boolean trueFirst;
+    private static int andExistsBDD(BDDManager m, int f, int g,
+            boolean[] quantified, int last, VariableOrder order,
+            int orderId, int setId) {
+        int result;
+        if (f == BDDManager.FALSE || g == BDDManager.FALSE
+                || f == BDDManager.complement(g)) {
+            result = BDDManager.FALSE;
+        } else if (f == BDDManager.TRUE || f == g) {
+            result = existsBDD(m, g, quantified, last, order, orderId, setId);
+        } else if (g == BDDManager.TRUE) {
+            result = existsBDD(m, f, quantified, last, order, orderId, setId);
+        } else {
+            if (f > g) {
+                int temp = f;
+                f = g;
+                g = temp;
+            }
 
-    /*
-     * Private helper methods
-     */
+            int fRank = rankOf(m, f, order);
+            int gRank = rankOf(m, g, order);
+            int rank = Math.min(fRank, gRank);
+            if (rank > last) {
+                result = applyBDD(m, BinaryOperator.AND, f, g, order, orderId);
+            } else {
+                int code = cacheCode(orderId, AND_EXISTS_CODE);
+                result = m.iteCache().lookup(code, f, g, setId);
+                if (result == ComputedTable.MISSING) {
+                    // Split on the variable with the highest precedence
+                    int fLo = f;
+                    int fHi = f;
+                    int gLo = g;
+                    int gHi = g;
+                    int var;
+                    if (fRank == rank) {
+                        var = m.var(f);
+                        fLo = m.lo(f);
+                        fHi = m.hi(f);
+                    } else {
+                        var = m.var(g);
+                    }
+                    if (gRank == rank) {
+                        gLo = m.lo(g);
+                        gHi = m.hi(g);
+                    }
+
+                    int lo = andExistsBDD(m, fLo, gLo, quantified, last,
+                            order, orderId, setId);
+                    if (quantified[rank]) {
+                        result = BDDManager.TRUE;
+                        if (lo != BDDManager.TRUE) {
+                            int hi = andExistsBDD(m, fHi, gHi, quantified,
+                                    last, order, orderId, setId);
+                            result = applyBDD(m, BinaryOperator.OR, lo, hi,
+                                    order, orderId);
+                        }
+                    } else {
+                        int hi = andExistsBDD(m, fHi, gHi, quantified, last,
+                                order, orderId, setId);
+                        result = m.mk(var, lo, hi);
+                    }
+
+                    m.iteCache().insert(code, f, g, setId, result);
+                }
+            }
+        }
+
+        return result;
+    }
 
     /**
-     * Reports whether {@code c} is the location of a leaf node
+     * Counts the assignments to {@code vars[rank, |vars|)} that satisfy the
+     * bdd rooted at {@code n}, where rank is the position of the variable of
+     * n. Counts are memoized per node, so the pass is linear in the size of
+     * the bdd; a complemented edge counts the assignments its node rejects,
+     * and a child that skips levels is scaled by a power of 2.
      *
-     * @param c
-     *            the coord to check
-     * @return true iff c corresponds to a leaf node
-     * @ensures isLeaf = (c.depth = 0)
+     * @param m
+     *            the manager holding the bdd
+     * @param n
+     *            the root of the bdd
+     * @param order
+     *            the order
+     * @param memo
+     *            counts of the regular edges already visited
+     * @updates memo
+     * @return the number of satisfying assignments below n
+     * @requires IS_ORDERED(m, n, vars)
+     * @ensures <pre>
+     *   countBDD = | { a: ASSIGNMENT where
+     *                    (a is subset of entries(vars[RANK(vars, m.var(n)), |vars|)) and
+     *                     EVALUATE_BDD(m, n, a)) (a) } |
+     * </pre>
      */
-    private static boolean isLeaf(Coord c) {
-        return c.depth == 0;
+    private static BigInteger countBDD(BDDManager m, int n,
+            VariableOrder order, HashMap<Integer, BigInteger> memo) {
+        int regular = n & ~1;
+        int rank = rankOf(m, n, order);
+
+        BigInteger count = memo.get(regular);
+        if (count == null) {
+            if (BDDManager.isLeaf(regular)) {
+                count = BigInteger.ONE;
+            } else {
+                int lo = m.lo(regular);
+                int hi = m.hi(regular);
+                count = countBDD(m, lo, order, memo)
+                        .shiftLeft(rankOf(m, lo, order) - rank - 1)
+                        .add(countBDD(m, hi, order, memo)
+                                .shiftLeft(rankOf(m, hi, order) - rank - 1));
+            }
+            memo.put(regular, count);
+        }
+        if (regular != n) {
+            count = BigInteger.ONE.shiftLeft(order.length() - rank)
+                    .subtract(count);
+        }
+
+        return count;
     }
 
     /**
-     * Reports whether {@code c} is the location of the true literal or false
-     * literal
+     * Restricts the bdd rooted at {@code n}, following the hi child of nodes
+     * testing a variable whose position is marked 1 in {@code polarity} and
+     * the lo child of nodes testing a variable marked -1, in one pass over the
+     * nodes reachable under the restriction. Nodes below the last restricted
+     * variable are returned unchanged.
      *
-     * @param c
-     *            the coord to check
-     * @param trueFirst
-     *            tells whether the true literal is currently at index 0
-     * @return true iff c corresponds to the True literal
-     * @requires c.depth = 0
-     * @ensures leafValue = ((c.index = 0 and trueFirst) or (c.index = 1 and not
-     *          trueFirst))
+     * @param m
+     *            the manager holding the bdd
+     * @param n
+     *            the root of the bdd
+     * @param polarity
+     *            1, -1 or 0 at each position of the order, as the variable
+     *            there is set to true, set to false or left free
+     * @param last
+     *            the last position of the order not marked 0 in polarity
+     * @param order
+     *            the order
+     * @param orderId
+     *            the ID in m of the order
+     * @param cube
+     *            the edge of the conjunction of the literals of the
+     *            restriction, naming it in the computed table
+     * @updates m
+     * @return the root of the restricted bdd
+     * @requires IS_ORDERED(m, n, vars)
+     * @ensures <pre>
+     *   IS_ORDERED(m, restrictBDD, vars) and
+     *   for all a: ASSIGNMENT where (a intersection (T union F) = empty_set)
+     *     ( EVALUATE_BDD(m, restrictBDD, a) = EVALUATE_BDD(m, n, a union T) )
+     *   where T and F are the sets of variables marked 1 and -1 in polarity
+     * </pre>
      */
-    private static boolean leafValue(Coord c, boolean trueFirst) {
-        assert c.depth == 0 : "Violation of c.depth = 0";
+    private static int restrictBDD(BDDManager m, int n, int[] polarity,
+            int last, VariableOrder order, int orderId,
+            int cube) {
+        int result = n;
+        int rank = rankOf(m, n, order);
+        if (rank <= last) {
+            // Restriction commutes with negation, so only regular edges are
+            // cached
+            int code = cacheCode(orderId, RESTRICT_CODE);
+            int regular = n & ~1;
+            result = m.cache().lookup(code, regular, cube);
+            if (result == ComputedTable.MISSING) {
+                if (polarity[rank] > 0) {
+                    result = restrictBDD(m, m.hi(regular), polarity, last,
+                            order, orderId, cube);
+                } else if (polarity[rank] < 0) {
+                    result = restrictBDD(m, m.lo(regular), polarity, last,
+                            order, orderId, cube);
+                } else {
+                    int lo = restrictBDD(m, m.lo(regular), polarity, last,
+                            order, orderId, cube);
+                    int hi = restrictBDD(m, m.hi(regular), polarity, last,
+                            order, orderId, cube);
+                    result = m.mk(m.var(regular), lo, hi);
+                }
 
-        boolean leafValue = trueFirst;
-        if (c.index == 1) {
-            leafValue = !leafValue;
+                m.cache().insert(code, regular, cube, result);
+            }
+            result = result ^ (n & 1);
         }
 
-        return leafValue;
+        return result;
     }
 
     /**
-     * Returns the variable label corresponding to a depth
+     * Simplifies the bdd rooted at {@code f} against the care set rooted at
+     * {@code c}, computing either the generalized cofactor (constrain) or the
+     * Coudert-Madre restriction (simplify). Both commute with negation of f,
+     * so only regular edges of f are cached. Where one cofactor of the care
+     * set is empty the other branch is taken; when simplifying, a care-set
+     * variable above the top variable of f is quantified out of the care set
+     * rather than added to the result.
      *
-     * @param vars
-     *            the ordering
-     * @param depth
-     *            the depth to get the label for
-     * @return the variable label at depth
-     * @requires 0 < depth < |vars|
-     * @ensures getLabel = vars[|vars| - depth]
+     * @param m
+     *            the manager holding both bdds and the result
+     * @param f
+     *            the root of the bdd being simplified
+     * @param c
+     *            the root of the care set
+     * @param simplify
+     *            whether to compute the restriction rather than the
+     *            generalized cofactor
+     * @param order
+     *            the order
+     * @param orderId
+     *            the ID in m of the order
+     * @updates m
+     * @return the root of the simplified bdd
+     * @requires IS_ORDERED(m, f, vars) and IS_ORDERED(m, c, vars)
+     * @ensures <pre>
+     *   IS_ORDERED(m, cofactorBDD, vars) and
+     *   for all a: ASSIGNMENT where (EVALUATE_BDD(m, c, a))
+     *     ( EVALUATE_BDD(m, cofactorBDD, a) = EVALUATE_BDD(m, f, a) )
+     * </pre>
      */
-    private static int getLabel(Sequence<Integer> vars, int depth) {
-        return vars.entry(vars.length() - depth);
+    private static int cofactorBDD(BDDManager m, int f, int c,
+            boolean simplify, VariableOrder order, int orderId) {
+        int result;
+        if (c == BDDManager.FALSE) {
+            result = BDDManager.FALSE;
+        } else if (c == BDDManager.TRUE || BDDManager.isLeaf(f)) {
+            result = f;
+        } else if (f == c) {
+            result = BDDManager.TRUE;
+        } else if (f == BDDManager.complement(c)) {
+            result = BDDManager.FALSE;
+        } else {
+            int tag = f & 1;
+            f = f ^ tag;
+
+            int code;
+            if (simplify) {
+                code = cacheCode(orderId, SIMPLIFY_CODE);
+            } else {
+                code = cacheCode(orderId, CONSTRAIN_CODE);
+            }
+            result = m.cache().lookup(code, f, c);
+            if (result == ComputedTable.MISSING) {
+                int fRank = rankOf(m, f, order);
+                int cRank = rankOf(m, c, order);
+                if (simplify && cRank < fRank) {
+                    // f does not test the top variable of c
+                    int either = applyBDD(m, BinaryOperator.OR, m.lo(c),
+                            m.hi(c), order, orderId);
+                    result = cofactorBDD(m, f, either, simplify, order,
+                            orderId);
+                } else {
+                    // Split on the variable with the highest precedence
+                    int var;
+                    int fLo = f;
+                    int fHi = f;
+                    int cLo = c;
+                    int cHi = c;
+                    if (fRank <= cRank) {
+                        var = m.var(f);
+                        fLo = m.lo(f);
+                        fHi = m.hi(f);
+                    } else {
+                        var = m.var(c);
+                    }
+                    if (cRank <= fRank) {
+                        cLo = m.lo(c);
+                        cHi = m.hi(c);
+                    }
+
+                    if (cLo == BDDManager.FALSE) {
+                        result = cofactorBDD(m, fHi, cHi, simplify, order,
+                                orderId);
+                    } else if (cHi == BDDManager.FALSE) {
+                        result = cofactorBDD(m, fLo, cLo, simplify, order,
+                                orderId);
+                    } else {
+                        int lo = cofactorBDD(m, fLo, cLo, simplify, order,
+                                orderId);
+                        int hi = cofactorBDD(m, fHi, cHi, simplify, order,
+                                orderId);
+                        result = m.mk(var, lo, hi);
+                    }
+                }
+
+                m.cache().insert(code, f, c, result);
+            }
+            result = result ^ tag;
+        }
+
+        return result;
     }
 
     /**
-     * Returns the node at the location {@code c} in {@code bdd}
+     * Substitutes, simultaneously, the bdd rooted at {@code subst[r]} for the
+     * variable at every position r of the order in the bdd rooted at
+     * {@code n}, in one bottom-up pass: each node becomes the if-then-else of
+     * its substitute and its two rebuilt children. Nodes below the last
+     * substituted variable are returned unchanged.
      *
-     * @param bdd
-     *            the Sequence containing all nodes of the bdd
-     * @param c
-     *            the coordinate of the desired node
-     * @return the node at position c in bdd
+     * @param m
+     *            the manager holding the bdds
+     * @param n
+     *            the root of the bdd
+     * @param subst
+     *            the root substituted for the variable at each position of
+     *            the order up to last; the variable itself where it is not
+     *            substituted
+     * @param last
+     *            the last position of the order that is substituted
+     * @param order
+     *            the order
+     * @param orderId
+     *            the ID in m of the order
+     * @param memo
+     *            results of earlier calls for the same substitution, by
+     *            regular edge
+     * @updates m, memo
+     * @return the root of the composed bdd
      * @requires <pre>
-     *      0 < c.depth < |bdd| and
-     *      0 <= index < |bdd[i]|
+     *   IS_ORDERED(m, n, vars) and
+     *   for all r: integer where (0 <= r <= last)
+     *     ( IS_ORDERED(m, subst[r], vars) )
+     * </pre>
+     * @ensures <pre>
+     *   IS_ORDERED(m, composeBDD, vars) and
+     *   for all a: ASSIGNMENT
+     *     ( EVALUATE_BDD(m, composeBDD, a) =
+     *         EVALUATE_BDD(m, n, (a \ entries(vars[0, last + 1))) union
+     *           { vars[r]: integer where (0 <= r <= last and
+     *                                     EVALUATE_BDD(m, subst[r], a)) }) )
      * </pre>
-     * @ensures getNode = bdd[c.depth][c.index]
      */
-    private static Node getNode(Sequence<Sequence<Node>> bdd, Coord c) {
-        return bdd.entry(c.depth).entry(c.index);
+    private static int composeBDD(BDDManager m, int n, int[] subst, int last,
+            VariableOrder order, int orderId,
+            HashMap<Integer, Integer> memo) {
+        int result = n;
+        int rank = rankOf(m, n, order);
+        if (rank <= last) {
+            // Composition commutes with negation, so only regular edges are
+            // memoized
+            int regular = n & ~1;
+            Integer cached = memo.get(regular);
+            if (cached != null) {
+                result = cached;
+            } else {
+                int lo = composeBDD(m, m.lo(regular), subst, last, order,
+                        orderId, memo);
+                int hi = composeBDD(m, m.hi(regular), subst, last, order,
+                        orderId, memo);
+                result = iteBDD(m, subst[rank], hi, lo, order, orderId);
+                memo.put(regular, result);
+            }
+            result = result ^ (n & 1);
+        }
+
+        return result;
     }
 
     /**
-     * Finds the new position of the root in {@code bdd} after a restrict
-     * operation
+     * Swaps the variables at positions {@code level} and {@code level + 1} of
+     * the order of the bdd rooted at {@code n}. Nodes below the two levels
+     * are shared with the original, nodes testing the lower variable are kept
+     * as they are, and nodes testing the upper variable are rebuilt from
+     * their four grandchildren; nodes above the two levels are rebuilt only
+     * along paths that reach a changed node.
      *
-     * @param bdd
-     *            the bdd structure to be restricted
-     * @param root
-     *            the location of the first node to consider
-     * @param vars
-     *            the current variable ordering of the bdd
-     * @param t
-     *            a set containing the variables to be constrained to true
-     * @param f
-     *            a set containing the variables to be constrainted to false
-     * @return the new root of bdd following a restrict operation with variables
-     *         in t constrained to true and variables in f constrained to false
+     * @param m
+     *            the manager holding the bdd
+     * @param n
+     *            the root of the bdd
+     * @param level
+     *            the position of the upper of the two variables
+     * @param order
+     *            the order the positions of the variables are taken from
+     * @param positions
+     *            the position, before the swap, of the variable at each
+     *            position of order
+     * @updates m
+     * @return the root of the swapped bdd
      * @requires <pre>
-     *      |bdd| = |vars| + 1 and
-     * 		0 <= child.depth < |bdd| and
-     * 		0 <= child.index < |bdd[child.depth]| and
-     * 		t union f is subset of entries(vars) and
-     * 		t intersection f = empty_set
+     *   IS_ORDERED(m, n, vars) and 0 <= level < | vars | - 1 and
+     *   [every node marked in m was marked, with its result, by an earlier
+     *    call for the same swap]
      * </pre>
      * @ensures <pre>
-     * 		findUnconstrainedRoot = root or
-     * 		there exists path: String of COORD
-     * 		  ( path[0] = root and
-     * 		    path[|path - 1|] = findUnconstrainedRoot and
-     * 		    for all j where (0 <= j < |path| - 1)
-     * 		      ( (bdd[path[j].depth][path[j].index].hi = path[j + 1] and vars[|vars| - path[j].depth] is in t) or
-     * 				(bdd[path[j].depth][path[j].index].lo = path[j + 1] and vars[|vars| - path[j].depth] is in f) ) )
+     *   IS_ORDERED(m, swapBDD, vars') and
+     *   for all a: ASSIGNMENT
+     *     ( EVALUATE_BDD(m, swapBDD, a) = EVALUATE_BDD(m, n, a) )
+     *   where vars' is vars with the entries at level and level + 1 swapped
      * </pre>
      */
-    private static Coord findUnconstrainedRoot(Sequence<Sequence<Node>> bdd,
-            Coord root, Sequence<Integer> vars, Set<Integer> t,
-            Set<Integer> f) {
-        Coord returnChild = new Coord(root.depth, root.index);
-
-        while (!isLeaf(returnChild)
-                && (t.contains(getLabel(vars, returnChild.depth))
-                        || f.contains(getLabel(vars, returnChild.depth)))) {
-            Node rootNode = bdd.entry(returnChild.depth)
-                    .entry(returnChild.index);
-            if (t.contains(getLabel(vars, returnChild.depth))) {
-                returnChild.depth = rootNode.hi.depth;
-                returnChild.index = rootNode.hi.index;
+    private static int swapBDD(BDDManager m, int n, int level,
+            VariableOrder order, int[] positions) {
+        int result = n;
+        int rank = rankOf(m, n, order, positions);
+        if (rank <= level) {
+            int regular = n & ~1;
+            if (m.isMarked(n >>> 1)) {
+                result = m.markValue(n >>> 1);
             } else {
-                returnChild.depth = rootNode.lo.depth;
-                returnChild.index = rootNode.lo.index;
+                int x = m.var(regular);
+                int lo = m.lo(regular);
+                int hi = m.hi(regular);
+                if (rank < level) {
+                    result = m.mk(x, swapBDD(m, lo, level, order, positions),
+                            swapBDD(m, hi, level, order, positions));
+                } else {
+                    boolean loTestsY = rankOf(m, lo, order,
+                            positions) == level + 1;
+                    boolean hiTestsY = rankOf(m, hi, order,
+                            positions) == level + 1;
+                    result = regular;
+                    if (loTestsY || hiTestsY) {
+                        // Cofactors with respect to x, then y
+                        int f00 = lo;
+                        int f01 = lo;
+                        int f10 = hi;
+                        int f11 = hi;
+                        int y;
+                        if (loTestsY) {
+                            y = m.var(lo);
+                            f00 = m.lo(lo);
+                            f01 = m.hi(lo);
+                        } else {
+                            y = m.var(hi);
+                        }
+                        if (hiTestsY) {
+                            f10 = m.lo(hi);
+                            f11 = m.hi(hi);
+                        }
+                        result = m.mk(y, m.mk(x, f00, f10), m.mk(x, f01, f11));
+                    }
+                }
+                m.mark(n >>> 1, result);
             }
+            result = result ^ (n & 1);
         }
 
-        return returnChild;
+        return result;
     }
 
     /**
-     * Updates {@code reduced} to be the maximally compact version of
-     * {@code oldBDD} if necessary
+     * Counts the nodes of {@code this} at each position from {@code top} to
+     * {@code bottom} of its order. Only nodes at or above {@code bottom} are
+     * visited.
      *
-     * @param oldBDD
-     *            the unreduced BDD
-     * @param reduced
-     *            the reduced BDD
-     * @param oldTrueFirst
-     *            the value of trueFirst prior to the reduction
-     * @param root
-     *            the root of the bdd
-     * @replaces reduced
-     * @updates root
-     * @return the value of trueFirst for the reduced bdd
-     * @requires <pre>
-     *   |#reduced| = |oldBDD|
-     *   OBDD_CONVENTIONS(oldBDD, (#root, 0), INTERVAL(|oldBDD| - 1))
-     * </pre>
+     * @param order
+     *            the order the positions of the variables are taken from
+     * @param positions
+     *            the position in this of the variable at each position of
+     *            order
+     * @param top
+     *            the first position counted
+     * @param bottom
+     *            the last position counted
+     * @param sizes
+     *            the number of nodes at each position
+     * @updates sizes
+     * @requires 0 <= top <= bottom < | sizes | = | this.vars |
      * @ensures <pre>
-     *   root = (ROOT_DEPTH(reduced), 0) and
-     *	 if root == (0, 1) then reduce = false and
-     *   if root != (0, 1) then reduce = #reduce and
-     *   RODBDD_CONVENTIONS(reduced, root, INTERVAL(|reduced| - 1)) and
-     *	 for all a: ASSIGNMENT where (a is in POWERSET(entries(INTERVAL(|reduced| - 1))))
-     *     ( EVALUATE_BDD(reduced, root, INTERVAL(|reduced| - 1), reduce, a) =
-     *       EVALUATE_BDD(oldBDD, #root, INTERVAL(|reduced| - 1), oldTrueFirst, a) )
+     *   for all i: integer where (top <= i <= bottom)
+     *     (sizes[i] = [number of nodes reachable from this.root that test
+     *                  the variable at position i]) and
+     *   [the other entries of sizes are unchanged]
      * </pre>
      */
-    private static boolean reduce(Sequence<Sequence<Node>> oldBDD,
-            Sequence<Sequence<Node>> reduced, boolean oldTrueFirst,
-            Coord root) {
-        boolean trueRoot = true;
-        boolean isFalseLiteral = (oldTrueFirst && root.depth == 0
-                && root.index == 1)
-                || (!oldTrueFirst && root.depth == 0 && root.index == 0);
-        int currentID = 2;
-
-        // ID of node based on position in undreduced BDD
-        int[][] idArr = new int[oldBDD.length()][];
-        for (int i = 0; i < idArr.length; i++) {
-            idArr[i] = new int[oldBDD.entry(i).length()];
+    private void countLevels(VariableOrder order, int[] positions, int top,
+            int bottom, int[] sizes) {
+        for (int i = top; i <= bottom; i++) {
+            sizes[i] = 0;
         }
 
-        // Set IDs for terminals
-        idArr[0] = new int[2];
-        idArr[0][0] = 0;
-        idArr[0][1] = 1;
-
-        // Position of node in reduced BDD based on ID. Terminal nodes added
-        // immediately
-        Map<Integer, Coord> reducedLocMap = new Map4<Integer, Coord>();
-        reducedLocMap.add(0, new Coord(0, 0));
-        reducedLocMap.add(1, new Coord(0, 1));
-
-        // Iterate over all variables of BDD going bottom up
-        for (int j = 1; j < oldBDD.length(); j++) {
-            // Map to check for duplicate subBDDs among nodes with same
-            // variables
-            Map<IDPair, Integer> currVarMap = new Map4<IDPair, Integer>();
-
-            // Iterate over each node with the same variable
-            for (int k = 0; k < oldBDD.entry(j).length(); k++) {
-                Node current = oldBDD.entry(j).entry(k);
-
-                int loID = idArr[current.lo.depth][current.lo.index];
-                int hiID = idArr[current.hi.depth][current.hi.index];
-
-                IDPair childPair = new IDPair(loID, hiID);
-
-                // Check if ID of lo and hi child are the same
-                if (loID == hiID) {
-                    idArr[j][k] = loID;
-                    if (loID == 1) {
-                        trueRoot = false;
-                    }
-                } else if (currVarMap.hasKey(childPair)) {
-                    idArr[j][k] = currVarMap.value(childPair);
-                } else {
-                    // Update IDs and maps
-                    idArr[j][k] = currentID;
-                    currVarMap.add(childPair, currentID);
-                    reducedLocMap.add(currentID,
-                            new Coord(j, reduced.entry(j).length()));
-                    currentID++;
-
-                    // Add new Node to reduced BDD
-                    Coord reducedLoLoc = reducedLocMap.value(loID);
-                    Coord reducedHiLoc = reducedLocMap.value(hiID);
-                    Node newNode = new Node(reducedHiLoc, reducedLoLoc);
-                    reduced.entry(j).add(reduced.entry(j).length(), newNode);
+        this.manager.clearMarks();
+        int[] pending = new int[2];
+        int count = 0;
+        pending[count] = this.root & ~1;
+        count++;
+        while (count > 0) {
+            count--;
+            int n = pending[count];
+            int rank = rankOf(this.manager, n, order, positions);
+            if (rank <= bottom && !this.manager.isMarked(n >>> 1)) {
+                this.manager.mark(n >>> 1, 0);
+                if (rank >= top) {
+                    sizes[rank]++;
                 }
+                if (count + 2 > pending.length) {
+                    pending = Arrays.copyOf(pending, 2 * pending.length);
+                }
+                pending[count] = this.manager.lo(n) & ~1;
+                pending[count + 1] = this.manager.hi(n) & ~1;
+                count += 2;
             }
         }
+    }
 
-        // Assign new root based on last ID assigned
-        root.depth = reducedLocMap.value(currentID - 1).depth;
-        root.index = reducedLocMap.value(currentID - 1).index;
+    /**
+     * Swaps the variables at positions {@code level} and {@code level + 1} of
+     * {@code this}, keeping {@code byPosition}, {@code positions} and
+     * {@code sizes} in step with the diagram, and reports the change in its
+     * size. Only the two swapped levels change size, so only they are
+     * recounted.
+     *
+     * @param byPosition
+     *            the variables of this, by position
+     * @param order
+     *            the order the positions of the variables are taken from
+     * @param positions
+     *            the position in this of the variable at each position of
+     *            order
+     * @param sizes
+     *            the number of nodes at each position
+     * @param level
+     *            the position of the upper of the two variables
+     * @return the number of nodes gained by the diagram
+     * @updates this.root, byPosition, positions, sizes
+     * @requires 0 <= level < | byPosition | - 1
+     */
+    private int siftSwap(int[] byPosition, VariableOrder order,
+            int[] positions, int[] sizes, int level) {
+        this.manager.clearMarks();
+        this.root = swapBDD(this.manager, this.root, level, order, positions);
+        int u = byPosition[level];
+        byPosition[level] = byPosition[level + 1];
+        byPosition[level + 1] = u;
+        positions[order.rank(byPosition[level])] = level;
+        positions[order.rank(u)] = level + 1;
+
+        // Old nodes of the swapped levels are garbage now
+        this.manager.maybeCollect();
+
+        int before = sizes[level] + sizes[level + 1];
+        this.countLevels(order, positions, level, level + 1, sizes);
+
+        return sizes[level] + sizes[level + 1] - before;
+    }
 
-        // Account for Reduced BDD being the literal true
-        if (currentID == 2 && trueRoot && !isFalseLiteral) {
-            root.depth = reducedLocMap.value(0).depth;
-            root.index = reducedLocMap.value(0).index;
+    /**
+     * Evaluate a bdd for a given assignment
+     *
+     * @param m
+     *            the manager holding the bdd
+     * @param n
+     *            the root of the bdd
+     * @param t
+     *            the assignment to evaluate
+     * @return true iff the BDD evaluates to true for the given assignment
+     * @ensures evaluateBDD = EVALUATE_BDD(m, n, t)
+     */
+    private static boolean evaluateBDD(BDDManager m, int n, Set<Integer> t) {
+        int current = n;
+        while (!BDDManager.isLeaf(current)) {
+            if (t.contains(m.var(current))) {
+                current = m.hi(current);
+            } else {
+                current = m.lo(current);
+            }
         }
 
-        // Update trueFirst and the root if we've reduced down to the False literal
-        boolean newTrueFirst = oldTrueFirst;
+        return current == BDDManager.TRUE;
+    }
+
+    /**
+     * Appends to {@code cubes} one cube for each path from edge {@code n} to
+     * the true leaf, with the literals of the variables tested above n
+     * already chosen in {@code literals}. Paths through the hi edge of a node
+     * come first. The number of cubes is the number of such paths, however
+     * many assignments they cover.
+     *
+     * @param m
+     *            the manager holding n
+     * @param n
+     *            the edge
+     * @param order
+     *            the order
+     * @param literals
+     *            the literal chosen for each variable, by rank, or null if it
+     *            is not tested
+     * @param cubes
+     *            the cubes found so far
+     * @updates cubes
+     * @requires IS_ORDERED(m, n, vars)
+     */
+    private static void cubesBDD(BDDManager m, int n,
+            VariableOrder order, String[] literals,
+            StringJoiner cubes) {
+        if (n == BDDManager.TRUE) {
+            StringJoiner cube = new StringJoiner(",", "{", "}");
+            for (String literal : literals) {
+                if (literal != null) {
+                    cube.add(literal);
+                }
+            }
+            cubes.add(cube.toString());
+        } else if (n != BDDManager.FALSE) {
+            int var = m.var(n);
+            int rank = order.rank(var);
+            literals[rank] = String.valueOf(var);
+            cubesBDD(m, m.hi(n), order, literals, cubes);
+            literals[rank] = "~" + var;
+            cubesBDD(m, m.lo(n), order, literals, cubes);
+            literals[rank] = null;
+        }
+    }
 
-        if (root.depth == 0 && root.index == 1) {
-            root.depth = 0;
-            root.index = 0;
-            newTrueFirst = false;
+    /**
+     * Copies the bdd rooted at {@code n} in {@code from} into {@code to}.
+     *
+     * @param from
+     *            the manager holding the bdd
+     * @param n
+     *            the root of the bdd
+     * @param to
+     *            the manager to copy into
+     * @param memo
+     *            nodes of from already copied, and their IDs in to
+     * @updates to, memo
+     * @return the root of the copy in to
+     * @ensures for all a: ASSIGNMENT
+     *          ( EVALUATE_BDD(to, importBDD, a) = EVALUATE_BDD(from, n, a) )
+     */
+    private static int importBDD(BDDManager from, int n, BDDManager to,
+            HashMap<Integer, Integer> memo) {
+        int result = n;
+        if (!BDDManager.isLeaf(n)) {
+            // Copy each node once, whichever edges reach it
+            int regular = n & ~1;
+            Integer cached = memo.get(regular);
+            if (cached != null) {
+                result = cached;
+            } else {
+                int lo = importBDD(from, from.lo(regular), to, memo);
+                int hi = importBDD(from, from.hi(regular), to, memo);
+                result = to.mk(from.var(regular), lo, hi);
+                memo.put(regular, result);
+            }
+            result = result ^ (n & 1);
         }
-        return newTrueFirst;
 
+        return result;
     }
 
     /**
-     * Produces the OBDD resulting from applying a logical operator between two
-     * bdds
+     * Builds, in {@code m}, the bdd whose satisfying assignments are the rows
+     * {@code rows[from, to)}, where {@code rows[i][j]} tells whether variable
+     * {@code order[j]} is true in row {@code i}. The rows are partitioned on
+     * each variable in turn, so every row is visited once per variable and no
+     * assignment outside the rows is ever enumerated.
      *
-     * @param thisBDD
-     *            the bdd structure apply is being called on
-     * @param thisRoot
-     *            the root of the bdd apply is being called on
-     * @param xBDD
-     *            the other bdd to apply the logical operator on
-     * @param xRoot
-     *            the root of the other bdd
-     * @param op
-     *            the binary operator being applied between the two bdds
-     * @param thisVars
-     *            the ordering of the bdd apply is being called on
-     * @param xVars
-     *            the ordering of the other bdd
-     * @param newVars
-     *            the ordering of the resulting bdd
-     * @param thisTrueFirst
-     *            tells whether the true literal is currently at index 0 for the
-     *            bdd structure apply is being called on
-     * @param xTrueFirst
-     *            tells whether the true literal is currently at index 0 for the
-     *            other bdd
-     * @param newBDD
-     *            the resulting bdd structure
-     * @updates newBDD
-     * @return the root of the resulting bdd
+     * @param m
+     *            the manager to build in
+     * @param rows
+     *            the assignments, one per row
+     * @param from
+     *            the first row of the range
+     * @param to
+     *            the end of the range
+     * @param level
+     *            the rank of the first variable still to test
+     * @param order
+     *            the variables, by rank
+     * @updates m, rows
+     * @return the root of the bdd
      * @requires <pre>
-     *   ROBDD_CONVENTIONS(thisBDD, thisRoot, thisVars) and
-     *   ROBDD_CONVENTIONS(xBDD, xRoot, xVars) and
-     *   IS_COMPATIBLE_ORDERING(thisVars, xVars) and
-     *   entries(newVars) = entries(thisVars) union entries(xVars) and
-     *   | newVars | = | entries(newVars) | and
-     *   | newBDD | = | newVars | + 1
+     * 0 <= from <= to <= | rows | and 0 <= level <= | order | and
+     * the rows of rows[from, to) are distinct
      * </pre>
      * @ensures <pre>
-     *   combineBDD = (ROOT_DEPTH(newBDD), 0) and
-     *   OBDD_CONVENTIONS(newBDD, combineBDD, newVars) and
-     *   ( ( if op = AND then for all a: ASSIGNMENT where (a is in POWERSET(entries(newVars)))
-     *                          ( EVALUATE_BDD(newBDD, combineBDD, newVars, true, a) =
-     *                              EVALUATE_BDD(thisBDD, thisRoot, thisVars, thisTrueFirst, a) and
-     *                              EVALUATE_BDD(xBDD, xRoot, xVars, xTrueFirst, a)
-     *                          )
-     *     ) and
-     *     ( if op = OR then for all a: ASSIGNMENT where (a is in POWERSET(entries(newVars)))
-     *                          ( EVALUATE_BDD(newBDD, combineBDD, newVars, true, a) =
-     *                              EVALUATE_BDD(thisBDD, thisRoot, thisVars, thisTrueFirst, a) or
-     *                              EVALUATE_BDD(xBDD, xRoot, xVars, xTrueFirst, a)
-     *                          )
-     *     ) and
-     *     ( if op = EQUIVALS then for all a: ASSIGNMENT where (a is in POWERSET(entries(newVars)))
-     *                          ( EVALUATE_BDD(newBDD, combineBDD, newVars, true, a) =
-     *                              ( EVALUATE_BDD(thisBDD, thisRoot, thisVars, thisTrueFirst, a) =
-     *                                EVALUATE_BDD(xBDD, xRoot, xVars, xTrueFirst, a) )
-     *                          )
-     *     )
-     *   )
+     * IS_ORDERED(m, fromRows, order) and
+     * perms(rows, #rows) and
+     * for all a: ASSIGNMENT
+     *   ( EVALUATE_BDD(m, fromRows, a) = [some row of rows[from, to) agrees
+     *       with a on entries(order[level, | order |))] )
      * </pre>
      */
-    private static Coord combineBDD(Sequence<Sequence<Node>> thisBDD,
-            Coord thisRoot, Sequence<Sequence<Node>> xBDD, Coord xRoot,
-            BinaryOperator op, Sequence<Integer> thisVars,
-            Sequence<Integer> xVars, Sequence<Integer> newVars,
-            boolean thisTrueFirst, boolean xTrueFirst,
-            Sequence<Sequence<Node>> newBDD) {
-
-        // Depth to insert the Node at
-        int insertionDepth;
-
-        // Coord to insert at and return
-        Coord insertionCoord;
-
-        // Both nodes are leaves
-        if (isLeaf(thisRoot) && isLeaf(xRoot)) {
-
-            boolean opResult = leafValue(thisRoot, thisTrueFirst);
-            switch (op) {
-                case AND:
-                    opResult = opResult && leafValue(xRoot, xTrueFirst);
-                    break;
-                case OR:
-                    opResult = opResult || leafValue(xRoot, xTrueFirst);
-                    break;
-                case EQUIVALS:
-                    opResult = opResult == leafValue(xRoot, xTrueFirst);
-                    break;
-                default:
-                    assert false : "Apply of unrecognized BinaryOpertor: " + op;
-            }
-
-            if (opResult) {
-                insertionCoord = new Coord(0, 0);
+    private static int fromRows(BDDManager m, boolean[][] rows, int from,
+            int to, int level, int[] order) {
+        int result = BDDManager.FALSE;
+        if (from < to) {
+            if (level == order.length) {
+                result = BDDManager.TRUE;
             } else {
-                insertionCoord = new Coord(0, 1);
+                // Move the rows where order[level] is false to the front
+                int mid = from;
+                for (int i = from; i < to; i++) {
+                    if (!rows[i][level]) {
+                        boolean[] row = rows[i];
+                        rows[i] = rows[mid];
+                        rows[mid] = row;
+                        mid++;
+                    }
+                }
+                int lo = fromRows(m, rows, from, mid, level + 1, order);
+                int hi = fromRows(m, rows, mid, to, level + 1, order);
+                result = m.mk(order[level], lo, hi);
             }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports the root of {@code x} as a node of {@code this.manager}, copying
+     * the nodes of {@code x} if it uses a different manager.
+     *
+     * @param x
+     *            the structure
+     * @return the root of x in this.manager
+     */
+    private int localRoot(BooleanStructure2 x) {
+        int result = x.root;
+        if (x.manager != this.manager) {
+            result = importBDD(x.manager, x.root, this.manager,
+                    new HashMap<Integer, Integer>());
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports the root, in {@code this.manager}, of the diagram of {@code x}
+     * under an order compatible with {@code this.vars}. Reduced ordered
+     * diagrams are canonical, so the result equals {@code this.root} iff
+     * {@code this} and {@code x} are equivalent.
+     *
+     * @param x
+     *            the structure
+     * @return the root of a diagram equivalent to x, ordered compatibly with
+     *         this.vars, in this.manager
+     */
+    private int alignedRoot(BooleanStructure2 x) {
+        int result;
+        if (this.varOrder().isCompatible(x.varOrder())) {
+            result = this.localRoot(x);
         } else {
-            // Node to be added to BDD
-            Node newNode;
-
-            Coord hiCoord;
-            Coord loCoord;
-
-            if (!isLeaf(thisRoot) && !isLeaf(xRoot) && (getLabel(thisVars,
-                    thisRoot.depth) == getLabel(xVars, xRoot.depth))) {
-
-                Node thisNode = getNode(thisBDD, thisRoot);
-                Node xNode = getNode(xBDD, xRoot);
-
-                // Recursively add and get reference to Hi and Lo nodes
-                hiCoord = combineBDD(thisBDD, thisNode.hi, xBDD, xNode.hi, op,
-                        thisVars, xVars, newVars, thisTrueFirst, xTrueFirst,
-                        newBDD);
-                loCoord = combineBDD(thisBDD, thisNode.lo, xBDD, xNode.lo, op,
-                        thisVars, xVars, newVars, thisTrueFirst, xTrueFirst,
-                        newBDD);
-
-                // Set the insertion depth
-                insertionDepth = newVars.length() - findIndex(
-                        getLabel(thisVars, thisRoot.depth), newVars, 0);
-            } else if (!isLeaf(thisRoot) && (isLeaf(xRoot) || findIndex(
-                    getLabel(thisVars, thisRoot.depth), newVars,
-                    0) < findIndex(getLabel(xVars, xRoot.depth), newVars, 0))) {
-                // The node from this has a higher precedence than the node from
-                // x
-                Node thisNode = getNode(thisBDD, thisRoot);
-
-                // Recursively add and get reference to Hi and Lo nodes
-                hiCoord = combineBDD(thisBDD, thisNode.hi, xBDD, xRoot, op,
-                        thisVars, xVars, newVars, thisTrueFirst, xTrueFirst,
-                        newBDD);
-                loCoord = combineBDD(thisBDD, thisNode.lo, xBDD, xRoot, op,
-                        thisVars, xVars, newVars, thisTrueFirst, xTrueFirst,
-                        newBDD);
-
-                // Set the insertion depth
-                insertionDepth = newVars.length() - findIndex(
-                        getLabel(thisVars, thisRoot.depth), newVars, 0);
-            } else {
-                // The node from x has a higher precedence than the node from
-                // this
-                Node xNode = getNode(xBDD, xRoot);
-
-                // Recursively add and get reference to Hi and Lo nodes
-                hiCoord = combineBDD(thisBDD, thisRoot, xBDD, xNode.hi, op,
-                        thisVars, xVars, newVars, thisTrueFirst, xTrueFirst,
-                        newBDD);
-                loCoord = combineBDD(thisBDD, thisRoot, xBDD, xNode.lo, op,
-                        thisVars, xVars, newVars, thisTrueFirst, xTrueFirst,
-                        newBDD);
-
-                // Create the new node
-                newNode = new Node(hiCoord, loCoord);
-
-                // Set the insertion depth
-                insertionDepth = newVars.length()
-                        - findIndex(getLabel(xVars, xRoot.depth), newVars, 0);
+            // Shared variables in the order of this, then the rest
+            VariableOrder xOrder = x.varOrder();
+            Sequence<Integer> newVars = this.vars.newInstance();
+            for (int v : this.vars) {
+                if (xOrder.contains(v)) {
+                    newVars.add(newVars.length(), v);
+                }
             }
-            // Create the new node
-            newNode = new Node(hiCoord, loCoord);
-
-            // Insert position and coordinate return value
-            insertionCoord = new Coord(insertionDepth,
-                    newBDD.entry(insertionDepth).length());
-            newBDD.entry(insertionCoord.depth).add(insertionCoord.index,
-                    newNode);
+            VariableOrder order = this.varOrder();
+            for (int v : x.vars) {
+                if (!order.contains(v)) {
+                    newVars.add(newVars.length(), v);
+                }
+            }
+            BooleanStructure2 aligned = new BooleanStructure2(this.manager);
+            aligned.copyFrom(x);
+            aligned.reorder(newVars);
+            result = aligned.root;
         }
 
-        return insertionCoord;
+        return result;
     }
 
     /**
-     * Evaluate a BooleanStructure2 BDD for a given assignment
+     * Reports {@code this.vars} as a {@code VariableOrder}, taking the
+     * snapshot only if the order changed since the last call.
      *
-     * @param bdd
-     *            the bdd structure
-     * @param vars
-     *            the variable ordering
-     * @param root
-     *            the location of the root in the bdd structure
-     * @param trueFirst
-     *            tells whether the true literal is currently at index 0 for the
-     *            bdd structure
-     * @param t
-     *            the assignment to evaluate
-     * @return true iff the BDD evaluates to true for the given assignment
-     * @requires ROBDD_CONVENTIONS(bdd, vars, root)
-     * @ensures evaluateBDD = EVALUATE_BDD(bdd, vars, root, trueFirst, t)
+     * @return the order of this
+     * @ensures varOrder = this.vars
      */
-    private static boolean evaluateBDD(Sequence<Sequence<Node>> bdd,
-            Sequence<Integer> vars, Coord root, boolean trueFirst,
-            Set<Integer> t) {
-        Coord currentCoord = root;
-        while (!isLeaf(currentCoord)) {
-            Node currentNode = getNode(bdd, currentCoord);
-            if (t.contains(getLabel(vars, currentCoord.depth))) {
-                currentCoord = currentNode.hi;
-            } else {
-                currentCoord = currentNode.lo;
-            }
+    private VariableOrder varOrder() {
+        if (this.varOrder == null) {
+            this.varOrder = new VariableOrder(this.vars);
         }
 
-        return leafValue(currentCoord, trueFirst);
+        return this.varOrder;
     }
 
     // Creator of initial representation
     private void createNewRep() {
-        // Set up BDD as a sequence of sequences with a true node
-        this.bdd = new Sequence1L<Sequence<Node>>();
-        this.bdd.add(0, new Sequence1L<Node>());
-
         // Instantiate vars
         this.vars = new Sequence1L<Integer>();
+        this.varOrder = null;
 
-        // Instantiate the root
-        this.root = new Coord(0, 0);
-
-        // The true label appears first
-        this.trueFirst = true;
+        // The root is the true leaf
+        this.root = BDDManager.TRUE;
     }
 
     /*
@@ -756,12 +1402,28 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
      */
 
     /**
-     * No-argument constructor.
+     * Constructor from {@code BDDManager}.
+     *
+     * @param manager
+     *            the manager to hold the nodes of {@code this}
      */
-    public BooleanStructure2() {
+    public BooleanStructure2(BDDManager manager) {
+        this.manager = manager;
+        this.manager.register(this);
         this.createNewRep();
     }
 
+    /**
+     * No-argument constructor. The nodes of {@code this} are held by
+     * {@code BDDManager.defaultManager()}, which is shared with every other
+     * structure constructed without a manager on the calling thread, so
+     * {@code this} must not be used by another thread while that thread may
+     * use any of them.
+     */
+    public BooleanStructure2() {
+        this(BDDManager.defaultManager());
+    }
+
     /**
      * Constructor from {@code boolean}.
      *
@@ -769,9 +1431,11 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
      *            {@code boolean} to initialize from
      */
     public BooleanStructure2(boolean b) {
-        this.createNewRep();
+        this();
 
-        this.trueFirst = b;
+        if (!b) {
+            this.root = BDDManager.FALSE;
+        }
     }
 
     /**
@@ -781,25 +1445,31 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
      *            {@code int} to initialize from
      */
     public BooleanStructure2(int i) {
-        this.createNewRep();
+        this();
 
-        // Create a new row for the variable node at position 1 in the BDD
-        // sequence
-        Sequence<Node> varRow = new Sequence1L<Node>();
-        this.bdd.add(1, varRow);
-
-        // Add the variable node to newly created row
-        Coord hi = new Coord(0, 0);
-        Coord lo = new Coord(0, 1);
+        this.setFromInt(i);
+    }
 
-        Node varNode = new Node(hi, lo);
+    /*
+     * Accessors for the manager
+     */
 
-        // Add to BDD and set as new root
-        this.bdd.entry(1).add(0, varNode);
-        this.root = new Coord(1, 0);
+    /**
+     * Reports the manager holding the nodes of {@code this}.
+     *
+     * @return the manager of this
+     */
+    public BDDManager manager() {
+        return this.manager;
+    }
 
-        // Add variable to order
-        this.vars.add(0, i);
+    /**
+     * Reports the edge to the root node of {@code this}.
+     *
+     * @return the root of this
+     */
+    int rootID() {
+        return this.root;
     }
 
     /*
@@ -814,7 +1484,8 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
     @Override
     public final BooleanStructure newInstance() {
         try {
-            return this.getClass().getConstructor().newInstance();
+            return this.getClass().getConstructor(BDDManager.class)
+                    .newInstance(this.manager);
         } catch (ReflectiveOperationException e) {
             throw new AssertionError(
                     "Cannot construct object of type " + this.getClass());
@@ -830,10 +1501,13 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
                 + " type BooleanExpression2";
 
         BooleanStructure2 localSource = (BooleanStructure2) source;
-        this.bdd = localSource.bdd;
+        if (localSource.manager != this.manager) {
+            this.manager = localSource.manager;
+            this.manager.register(this);
+        }
         this.vars = localSource.vars;
+        this.varOrder = localSource.varOrder;
         this.root = localSource.root;
-        this.trueFirst = localSource.trueFirst;
 
         localSource.createNewRep();
     }
@@ -842,39 +1516,48 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
     public void copyFrom(BooleanStructure source) {
         assert source != null : "Violation of:" + " source is not null";
         assert source != this : "Violation of:" + " source is not this";
-        if (!(source instanceof BooleanStructure2)) {
+        if (source instanceof BooleanStructureR) {
+            // Build directly from the satisfying assignments of source
+            BooleanStructureR localSource = (BooleanStructureR) source;
+            this.manager.maybeCollect();
+            Sequence<Integer> copyVars = new Sequence1L<Integer>();
+            int[] order = new int[localSource.vars.length()];
+            for (int v : localSource.vars) {
+                order[copyVars.length()] = v;
+                copyVars.add(copyVars.length(), v);
+            }
+            VariableOrder copyOrder = new VariableOrder(copyVars);
+            boolean[][] rows = new boolean[localSource.sat.size()][];
+            int next = 0;
+            for (Set<Integer> a : localSource.sat) {
+                rows[next] = new boolean[order.length];
+                for (int v : a) {
+                    rows[next][copyOrder.rank(v)] = true;
+                }
+                next++;
+            }
+
+            this.vars = copyVars;
+            this.varOrder = copyOrder;
+            this.root = fromRows(this.manager, rows, 0, rows.length, 0, order);
+        } else if (!(source instanceof BooleanStructure2)) {
             super.copyFrom(source);
         } else {
-            // Create copy of BDD structure
+            // Nodes are immutable and shared, so only the handle is copied
             BooleanStructure2 localSource = (BooleanStructure2) source;
-            Sequence<Sequence<Node>> copyBDD = new Sequence1L<Sequence<Node>>();
-            for (int i = 0; i < localSource.bdd.length(); i++) {
-                copyBDD.add(i, new Sequence1L<Node>());
-                for (int j = 0; j < localSource.bdd.entry(i).length(); j++) {
-                    Node current = localSource.bdd.entry(i).entry(j);
-                    Coord hi = new Coord(current.hi.depth, current.hi.index);
-                    Coord lo = new Coord(current.lo.depth, current.lo.index);
-
-                    Node copyNode = new Node(hi, lo);
-                    copyBDD.entry(i).add(j, copyNode);
-                }
-            }
+            this.manager.maybeCollect();
+            int copyRoot = this.localRoot(localSource);
 
             // Create copy of variable ordering
             Sequence<Integer> copyVars = new Sequence1L<Integer>();
-            for (int i = 0; i < localSource.vars.length(); i++) {
-                copyVars.add(i, localSource.vars.entry(i));
+            for (int v : localSource.vars) {
+                copyVars.add(copyVars.length(), v);
             }
 
-            // Create copy of root Coord
-            Coord copyRoot = new Coord(localSource.root.depth,
-                    localSource.root.index);
-
-            // Set values for BDD
-            this.bdd = copyBDD;
+            // Set values for BDD; the order snapshot is immutable, so shared
             this.vars = copyVars;
+            this.varOrder = localSource.varOrder;
             this.root = copyRoot;
-            this.trueFirst = localSource.trueFirst;
         }
     }
 
@@ -884,7 +1567,7 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
 
     @Override
     public boolean evaluate(Set<Integer> t) {
-        return evaluateBDD(this.bdd, this.vars, this.root, this.trueFirst, t);
+        return evaluateBDD(this.manager, this.root, t);
     }
 
     @Override
@@ -907,34 +1590,61 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
         // Cast x as a BE2 to access its private members BooleanExpression2
         BooleanStructure2 localX = (BooleanStructure2) x;
 
-        // Instantiate |vars| rows for the new BDD
-        Sequence<Sequence<Node>> newBDD = this.bdd.newInstance();
-        Sequence<Sequence<Node>> reducedBDD = this.bdd.newInstance();
-        for (int i = 0; i < newVars.length() + 1; i++) {
-            newBDD.add(i, new Sequence1L<Node>());
-            reducedBDD.add(i, new Sequence1L<Node>());
-        }
-
-        this.root = combineBDD(this.bdd, this.root, localX.bdd, localX.root, o,
-                this.vars, localX.vars, newVars, this.trueFirst,
-                localX.trueFirst, newBDD);
+        this.manager.maybeCollect();
+        int xRoot = this.localRoot(localX);
 
-        // Reduce the BDD
-        this.trueFirst = reduce(newBDD, reducedBDD, true, this.root);
-        this.bdd = reducedBDD;
+        VariableOrder order = new VariableOrder(newVars);
+        this.root = applyBDD(this.manager, o, this.root, xRoot, order,
+                this.manager.orderId(order));
 
         // Swap the vars
         Sequence<Integer> tempVars = newVars.newInstance();
         tempVars.transferFrom(this.vars);
         this.vars.transferFrom(newVars);
         newVars.transferFrom(tempVars);
+        this.varOrder = order;
+    }
+
+    @Override
+    public void ite(BooleanStructure g, BooleanStructure h,
+            Sequence<Integer> newVars) {
+        assert g instanceof BooleanStructure2 : ""
+                + "Violation of: g is a BooleanExpression2";
+        assert h instanceof BooleanStructure2 : ""
+                + "Violation of: h is a BooleanExpression2";
+        assert seqToSet(newVars).equals(union(seqToSet(this.vars),
+                union(seqToSet(g.vars()), seqToSet(h.vars())))) : ""
+                        + "Violation of: elements(newVars) = VARIABLES(this)"
+                        + " union VARIABLES(g) union VARIABLES(h)";
+        assert newVars.length() == seqToSet(newVars).size() : "Violation of: "
+                + "| newVars | = | elements(newVars) |";
+        assert IS_COMPATIBLE_ORDERING(this.vars, newVars) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(this.vars, newVars)";
+        assert IS_COMPATIBLE_ORDERING(g.vars(), newVars) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(g.vars, newVars)";
+        assert IS_COMPATIBLE_ORDERING(h.vars(), newVars) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(h.vars, newVars)";
+
+        this.manager.maybeCollect();
+        int gRoot = this.localRoot((BooleanStructure2) g);
+        int hRoot = this.localRoot((BooleanStructure2) h);
+
+        VariableOrder order = new VariableOrder(newVars);
+        this.root = iteBDD(this.manager, this.root, gRoot, hRoot, order,
+                this.manager.orderId(order));
 
+        // Swap the vars
+        Sequence<Integer> tempVars = newVars.newInstance();
+        tempVars.transferFrom(this.vars);
+        this.vars.transferFrom(newVars);
+        newVars.transferFrom(tempVars);
+        this.varOrder = order;
     }
 
     @Override
     public void apply(UnaryOperator o) {
         if (o == UnaryOperator.NOT) {
-            this.trueFirst = !this.trueFirst;
+            this.root = BDDManager.complement(this.root);
         }
     }
 
@@ -944,143 +1654,48 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
                 + "t union f is subset of VARIABLES(this)";
         assert intersection(t, f).size() == 0 : "Violation of: "
                 + "t intersection f = empty_set";
-        // Create structures to keep track of reachability and new indices for
-        // nodes
-        boolean[][] reachArr = new boolean[this.bdd.length()][];
-        Coord[][] coordArr = new Coord[this.bdd.length()][];
-        for (int i = 1; i < this.bdd.length(); i++) {
-            reachArr[i] = new boolean[this.bdd.entry(i).length()];
-            coordArr[i] = new Coord[this.bdd.entry(i).length()];
-        }
-
-        // Special cases for T/F row
-        reachArr[0] = new boolean[2];
-        coordArr[0] = new Coord[2];
-        reachArr[0][0] = true;
-        reachArr[0][1] = true;
-        coordArr[0][0] = new Coord(0, 0);
-        coordArr[0][1] = new Coord(0, 1);
 
-        // In case root and descendants are restricted, find where the root of
-        // the restricted BDD will be (original structure)
-        Coord restrRoot = findUnconstrainedRoot(this.bdd, this.root, this.vars,
-                t, f);
-
-        // Mark root and its children as reachable
-        if (!isLeaf(restrRoot)) {
-            reachArr[restrRoot.depth][restrRoot.index] = true;
-
-            Node rootNode = this.bdd.entry(restrRoot.depth)
-                    .entry(restrRoot.index);
-
-            reachArr[rootNode.hi.depth][rootNode.hi.index] = true;
-            reachArr[rootNode.lo.depth][rootNode.lo.index] = true;
-        }
-
-        // Mark the rest of the nodes if they're reachable
-        for (int i = restrRoot.depth - 1; i > 0; i--) {
-            if (!f.contains(getLabel(this.vars, i))) {
-                for (int j = 0; j < reachArr[i].length; j++) {
-                    if (reachArr[i][j]) {
-                        Node current = this.bdd.entry(i).entry(j);
-                        reachArr[current.hi.depth][current.hi.index] = true;
-                    }
-
-                }
-            }
-            if (!t.contains(getLabel(this.vars, i))) {
-                for (int j = 0; j < reachArr[i].length; j++) {
-                    if (reachArr[i][j]) {
-                        Node current = this.bdd.entry(i).entry(j);
-                        reachArr[current.lo.depth][current.lo.index] = true;
-                    }
+        if (t.size() + f.size() > 0) {
+            this.manager.maybeCollect();
+
+            // Mark the restricted positions and build the remaining order
+            int[] order = new int[this.vars.length()];
+            int[] polarity = new int[this.vars.length()];
+            int last = -1;
+            Sequence<Integer> newVars = this.vars.newInstance();
+            int i = 0;
+            for (int v : this.vars) {
+                order[i] = v;
+                if (t.contains(v)) {
+                    polarity[i] = 1;
+                    last = i;
+                } else if (f.contains(v)) {
+                    polarity[i] = -1;
+                    last = i;
+                } else {
+                    newVars.add(newVars.length(), v);
                 }
+                i++;
             }
-        }
-
-        // Instantiate BDDs for restriction and reduction
-        int numRemVars = this.vars.length() - t.size() - f.size();
-        Sequence<Sequence<Node>> restrBDD = this.bdd.newInstance();
-        Sequence<Sequence<Node>> reducedBDD = this.bdd.newInstance();
-        for (int i = 0; i < numRemVars + 1; i++) {
-            restrBDD.add(i, new Sequence1L<Node>());
-            reducedBDD.add(i, new Sequence1L<Node>());
-        }
-
-        // Create new ordering
-        Sequence<Integer> newVars = this.vars.newInstance();
-        for (int i = 0; i < this.vars.length(); i++) {
-            if (!t.contains(this.vars.entry(i))
-                    && !f.contains(this.vars.entry(i))) {
-                newVars.add(newVars.length(), this.vars.entry(i));
-            }
-        }
 
-        // Depth we're adding at in restricted structure
-        int restrDepth = 1;
-
-        // Location of root once structure has been restricted
-        int updatedRestrRootDepth = restrRoot.depth;
-        int updatedRestrRootIndex = restrRoot.index;
-
-        for (int i = 1; i <= restrRoot.depth; i++) {
-            if (!t.contains(getLabel(this.vars, i))
-                    && !f.contains(getLabel(this.vars, i))) {
-                // Index of node in restricted structure
-                int restrIndex = 0;
-                for (int j = 0; j < reachArr[i].length; j++) {
-                    // Check if it's a node that'll be in the restricted
-                    // structure (is reachable after restrict)
-                    if (reachArr[i][j]) {
-                        Node currentNode = this.bdd.entry(i).entry(j);
-
-                        // Find coord of new hi child of current node in
-                        // restricted structure
-                        Coord hi = coordArr[currentNode.hi.depth][currentNode.hi.index];
-
-                        // Find coord of new lo child of current node in
-                        // restricted structure
-                        Coord lo = coordArr[currentNode.lo.depth][currentNode.lo.index];
-
-                        // Add node to the restricted structure
-                        Node newNode = new Node(hi, lo);
-                        restrBDD.entry(restrDepth).add(restrIndex, newNode);
-
-                        // Last reachable element is root
-                        updatedRestrRootDepth = restrDepth;
-                        updatedRestrRootIndex = restrIndex;
-
-                        // Set the index that the node was placed at in the
-                        // restricted structure
-                        coordArr[i][j] = new Coord(restrDepth, restrIndex);
-                        restrIndex++;
-                    }
-                }
-                restrDepth++;
-            } else {
-                if (t.contains(getLabel(this.vars, i))) {
-                    for (int j = 0; j < reachArr[i].length; j++) {
-                        Node currentNode = this.bdd.entry(i).entry(j);
-                        coordArr[i][j] = coordArr[currentNode.hi.depth][currentNode.hi.index];
-                    }
-                } else {
-                    for (int j = 0; j < reachArr[i].length; j++) {
-                        Node currentNode = this.bdd.entry(i).entry(j);
-                        coordArr[i][j] = coordArr[currentNode.lo.depth][currentNode.lo.index];
-                    }
+            // Name the restriction by its cube, built bottom-up
+            int cube = BDDManager.TRUE;
+            for (int j = last; j >= 0; j--) {
+                if (polarity[j] > 0) {
+                    cube = this.manager.mk(order[j], BDDManager.FALSE, cube);
+                } else if (polarity[j] < 0) {
+                    cube = this.manager.mk(order[j], cube, BDDManager.FALSE);
                 }
             }
-        }
 
-        this.root = new Coord(updatedRestrRootDepth, updatedRestrRootIndex);
+            VariableOrder ranks = this.varOrder();
+            this.root = restrictBDD(this.manager, this.root, polarity, last,
+                    ranks, this.manager.orderId(ranks), cube);
 
-        // Reduce the BDD
-        this.trueFirst = reduce(restrBDD, reducedBDD, this.trueFirst,
-                this.root);
-        this.bdd = reducedBDD;
-
-        // Transfer vars
-        this.vars.transferFrom(newVars);
+            // Transfer vars
+            this.vars.transferFrom(newVars);
+            this.varOrder = null;
+        }
     }
 
     @Override
@@ -1089,69 +1704,47 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
                 newVars)) : "Violation of: VARIABLES(this) = elements(newVars)";
 
         if (newVars.length() > 1) {
-            int depth = 0;
-            int numNodes = 1;
-
-            // Instantiate rows for new BDDs
-            Sequence<Sequence<Node>> reordered = this.bdd.newInstance();
-            Sequence<Sequence<Node>> reduced = this.bdd.newInstance();
-            for (int i = 0; i < newVars.length() + 1; i++) {
-                reordered.add(i, new Sequence1L<Node>());
-                reduced.add(i, new Sequence1L<Node>());
+            this.manager.maybeCollect();
+
+            // Move each variable of newVars, in turn, up to its position by
+            // swapping it with the variable above it
+            int[] order = new int[this.vars.length()];
+            int k = 0;
+            for (int v : this.vars) {
+                order[k] = v;
+                k++;
             }
-
-            // Populate all but the last nonterminal node
-            for (int i = reordered.length() - 1; i > 1; i--) {
-                // Put 2^depth nodes in current row
-                for (int j = 0; j < numNodes; j++) {
-                    // Position of hi is one level above, at index 2j. Lo is at
-                    // same level at index 2j + 1
-                    Node newNode = new Node(new Coord(i - 1, 2 * j),
-                            new Coord(i - 1, 2 * j + 1));
-                    reordered.entry(i).add(reordered.entry(i).length(),
-                            newNode);
-                }
-
-                depth++;
-                numNodes = (int) Math.pow(2.0, depth);
+            VariableOrder ranks = this.varOrder();
+            int[] positions = new int[order.length];
+            for (int j = 0; j < positions.length; j++) {
+                positions[j] = j;
             }
-
-            // Set hi/lo coords based on evaluation in original BDD
-            PowerStringElements allAssignments = new PowerStringElements(
-                    newVars);
-            Iterator<Set<Integer>> assignIt = allAssignments.iterator();
-            for (int j = 0; j < numNodes; j++) {
-                Coord hi;
-                Coord lo;
-
-                if (evaluateBDD(this.bdd, this.vars, this.root, this.trueFirst,
-                        assignIt.next())) {
-                    hi = new Coord(0, 0);
-                } else {
-                    hi = new Coord(0, 1);
-                }
-
-                if (evaluateBDD(this.bdd, this.vars, this.root, this.trueFirst,
-                        assignIt.next())) {
-                    lo = new Coord(0, 0);
-                } else {
-                    lo = new Coord(0, 1);
+            int i = 0;
+            for (int v : newVars) {
+                int j = positions[ranks.rank(v)];
+                while (j > i) {
+                    this.manager.clearMarks();
+                    this.root = swapBDD(this.manager, this.root, j - 1, ranks,
+                            positions);
+                    int u = order[j - 1];
+                    order[j - 1] = v;
+                    order[j] = u;
+                    positions[ranks.rank(v)] = j - 1;
+                    positions[ranks.rank(u)] = j;
+                    j--;
+
+                    // Old nodes of the swapped levels are garbage now
+                    this.manager.maybeCollect();
                 }
-
-                reordered.entry(1).add(reordered.entry(1).length(),
-                        new Node(hi, lo));
+                i++;
             }
 
-            // Reduce the BDD
-            this.trueFirst = reduce(reordered, reduced, this.trueFirst,
-                    this.root);
-            this.bdd = reduced;
-
             // Swap the vars
             Sequence<Integer> tempVars = newVars.newInstance();
             tempVars.transferFrom(this.vars);
             this.vars.transferFrom(newVars);
             newVars.transferFrom(tempVars);
+            this.varOrder = null;
         }
     }
 
@@ -1164,23 +1757,12 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
     public void setFromInt(int i) {
         this.createNewRep();
 
-        // Create a new row for the variable node at position 1 in the BDD
-        // sequence
-        Sequence<Node> varRow = new Sequence1L<Node>();
-        this.bdd.add(1, varRow);
-
-        // Add the variable node to newly created row
-        Coord hi = new Coord(0, 0);
-        Coord lo = new Coord(0, 1);
-
-        Node varNode = new Node(hi, lo);
-
-        // Add to BDD and set as new root
-        this.bdd.entry(1).add(0, varNode);
-        this.root = new Coord(1, 0);
+        // Add the variable node and set it as the new root
+        this.root = this.manager.mk(i, BDDManager.FALSE, BDDManager.TRUE);
 
         // Add variable to order
         this.vars.add(0, i);
+        this.varOrder = null;
     }
 
     /*
@@ -1194,79 +1776,369 @@ public class BooleanStructure2 extends BooleanStructureSecondary {
                 .newInstance()) : "Violation of: newVariables intersection this.vars = empty_set";
         for (int var : newVars) {
             /*
-             * Adding to the front to preserve ordering. Also, since we're
-             * adding rows to the end of the BDD, the newly added variables will
-             * have the highest precedence in the ordering
+             * Adding to the front to preserve ordering. No node tests the new
+             * variables, so the diagram itself is unchanged.
              */
 
             this.vars.add(0, var);
-            this.bdd.add(this.bdd.length(), new Sequence1L<Node>());
         }
+        this.varOrder = null;
     }
 
     @Override
-    public boolean isSat() {
-        return !((this.trueFirst && this.root.depth == 0
-                && this.root.index == 1)
-                || (!this.trueFirst && this.root.depth == 0
-                        && this.root.index == 0));
+    public void exists(Set<Integer> vars) {
+        assert vars.isSubset(seqToSet(this.vars)) : "Violation of: "
+                + "vars is subset of VARIABLES(this)";
+
+        if (vars.size() > 0) {
+            this.manager.maybeCollect();
+
+            // Mark the quantified positions and build the remaining order
+            VariableOrder ranks = this.varOrder();
+            boolean[] quantified = new boolean[this.vars.length()];
+            int last = -1;
+            Sequence<Integer> quantifiedVars = this.vars.newInstance();
+            Sequence<Integer> newVars = this.vars.newInstance();
+            for (int v : this.vars) {
+                if (vars.contains(v)) {
+                    last = ranks.rank(v);
+                    quantified[last] = true;
+                    quantifiedVars.add(quantifiedVars.length(), v);
+                } else {
+                    newVars.add(newVars.length(), v);
+                }
+            }
+
+            this.root = existsBDD(this.manager, this.root, quantified, last,
+                    ranks, this.manager.orderId(ranks),
+                    this.manager.orderId(new VariableOrder(quantifiedVars)));
+
+            this.vars.transferFrom(newVars);
+            this.varOrder = null;
+        }
     }
 
     @Override
-    public boolean isValid() {
-        return (this.trueFirst && this.root.depth == 0 && this.root.index == 0)
-                || (!this.trueFirst && this.root.depth == 0
-                        && this.root.index == 1);
+    public void andExists(BooleanStructure x, Set<Integer> vars) {
+        assert x instanceof BooleanStructure2 : ""
+                + "Violation of: x is a BooleanExpression2";
+        assert IS_COMPATIBLE_ORDERING(this.vars, x.vars()) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(this.vars, x.vars)";
+        assert vars.isSubset(union(seqToSet(this.vars),
+                seqToSet(x.vars()))) : "Violation of: "
+                        + "vars is subset of VARIABLES(this) union VARIABLES(x)";
+
+        this.manager.maybeCollect();
+        int xRoot = this.localRoot((BooleanStructure2) x);
+
+        // Mark the quantified positions of the combined order and build the
+        // remaining order
+        Sequence<Integer> order = newOrder(this.vars, x.vars());
+        VariableOrder ranks = new VariableOrder(order);
+        boolean[] quantified = new boolean[order.length()];
+        int last = -1;
+        Sequence<Integer> quantifiedVars = this.vars.newInstance();
+        Sequence<Integer> newVars = this.vars.newInstance();
+        for (int v : order) {
+            if (vars.contains(v)) {
+                last = ranks.rank(v);
+                quantified[last] = true;
+                quantifiedVars.add(quantifiedVars.length(), v);
+            } else {
+                newVars.add(newVars.length(), v);
+            }
+        }
+
+        this.root = andExistsBDD(this.manager, this.root, xRoot, quantified,
+                last, ranks, this.manager.orderId(ranks),
+                this.manager.orderId(new VariableOrder(quantifiedVars)));
+
+        this.vars.transferFrom(newVars);
+        this.varOrder = null;
     }
 
     @Override
-    public boolean isTrueStructure() {
-        return isLeaf(this.root) && leafValue(this.root, this.trueFirst);
+    public void constrain(BooleanStructure care) {
+        assert care instanceof BooleanStructure2 : ""
+                + "Violation of: care is a BooleanExpression2";
+        assert IS_COMPATIBLE_ORDERING(this.vars, care.vars()) : ""
+                + "Violation of: IS_COMPATIBLE_ORDERING(this.vars, care.vars)";
+
+        this.manager.maybeCollect();
+        int careRoot = this.localRoot((BooleanStructure2) care);
+
+        Sequence<Integer> order = newOrder(this.vars, care.vars());
+        VariableOrder ranks = new VariableOrder(order);
+        this.root = cofactorBDD(this.manager, this.root, careRoot, false,
+                ranks, this.manager.orderId(ranks));
+
+        this.vars.transferFrom(order);
+        this.varOrder = ranks;
     }
 
     @Override
-    public boolean isFalseStructure() {
-        return isLeaf(this.root) && !leafValue(this.root, this.trueFirst);
+    public void simplify(BooleanStructure care) {
+        assert care instanceof BooleanStructure2 : ""
+                + "Violation of: care is a BooleanExpression2";
+        assert IS_COMPATIBLE_ORDERING(this.vars, care.vars()) : ""
+                + "Violation of: IS_COMPATIBLE_ORDERING(this.vars, care.vars)";
+
+        this.manager.maybeCollect();
+        int careRoot = this.localRoot((BooleanStructure2) care);
+
+        // The result only tests variables of this, so this.vars is kept
+        Sequence<Integer> order = newOrder(this.vars, care.vars());
+        VariableOrder ranks = new VariableOrder(order);
+        this.root = cofactorBDD(this.manager, this.root, careRoot, true,
+                ranks, this.manager.orderId(ranks));
     }
 
     @Override
-    public Set<Integer> satAssignment() {
-        // Construct assignment starting from True terminal
-        Coord child;
-        if (this.trueFirst) {
-            child = new Coord(0, 0);
-        } else {
-            child = new Coord(0, 1);
+    public void composeAll(Map<Integer, BooleanStructure> map) {
+        this.manager.maybeCollect();
+
+        // Mark the substituted positions of the combined order; every other
+        // position up to the last substituted one stands for itself
+        Sequence<Integer> order = composedOrder(this.vars, map);
+        VariableOrder ranks = new VariableOrder(order);
+        int[] subst = new int[order.length()];
+        boolean[] substituted = new boolean[order.length()];
+        int last = -1;
+        for (Map.Entry<Integer, BooleanStructure> e : map.entrySet()) {
+            assert e.getValue() instanceof BooleanStructure2 : ""
+                    + "Violation of: the values of map are BooleanExpression2s";
+            assert seqToSet(this.vars).contains(e.getKey()) : ""
+                    + "Violation of: map.keySet() is subset of VARIABLES(this)";
+            int rank = ranks.rank(e.getKey());
+            subst[rank] = this.localRoot((BooleanStructure2) e.getValue());
+            substituted[rank] = true;
+            last = Math.max(last, rank);
+        }
+        int i = 0;
+        for (int v : order) {
+            if (i <= last && !substituted[i]) {
+                subst[i] = this.manager.mk(v, BDDManager.FALSE,
+                        BDDManager.TRUE);
+            }
+            i++;
+        }
+
+        this.root = composeBDD(this.manager, this.root, subst, last, ranks,
+                this.manager.orderId(ranks), new HashMap<Integer, Integer>());
+
+        dropSubstituted(order, map);
+        this.vars.transferFrom(order);
+        this.varOrder = null;
+    }
+
+    @Override
+    public BigInteger satCount() {
+        VariableOrder order = this.varOrder();
+        return countBDD(this.manager, this.root, order,
+                new HashMap<Integer, BigInteger>())
+                        .shiftLeft(rankOf(this.manager, this.root, order));
+    }
+
+    @Override
+    protected int representationSize() {
+        return this.manager.dagSize(this.root);
+    }
+
+    /**
+     * Returns the cube form of {@code this}, as {@code toStringCubes} does,
+     * rather than every satisfying assignment, whose number may be
+     * exponential in the number of variables. The two forms agree on the
+     * constants and on single variables.
+     *
+     * @return the string listing the cubes of this
+     */
+    @Override
+    public String toString() {
+        return this.toStringCubes();
+    }
+
+    @Override
+    public String toStringCubes() {
+        StringJoiner cubes = new StringJoiner(",", "{", "}");
+        cubesBDD(this.manager, this.root, this.varOrder(),
+                new String[this.vars.length()], cubes);
+
+        return "( " + cubes.toString() + ", " + this.vars.toString() + " )";
+    }
+
+    @Override
+    protected void reorderIfDue() {
+        if (this.manager.reorderDue()) {
+            this.reduceHeap();
         }
+    }
 
-        // Loop until root has been reached
-        int currentDepth = 1;
-        Set<Integer> a = new Set4<Integer>();
-        while (child.depth != this.root.depth) {
-
-            // Find the parent of the current child
-            boolean parentFound = false;
-            while (!parentFound) {
-                // If child was a hi child, add it to our assignment, otherwise
-                // leave it out
-                for (int i = 0; i < this.bdd.entry(currentDepth)
-                        .length(); i++) {
-                    if (this.bdd.entry(currentDepth).entry(i).hi
-                            .equals(child)) {
-                        parentFound = true;
-                        child = new Coord(currentDepth, i);
-                        a.add(getLabel(this.vars, currentDepth));
-                    } else if (this.bdd.entry(currentDepth).entry(i).lo
-                            .equals(child)) {
-                        parentFound = true;
-                        child = new Coord(currentDepth, i);
+    /**
+     * Reorders the variables of {@code this} to reduce the size of its
+     * diagram, by sifting: each variable, largest level first, is moved
+     * through every position by adjacent swaps and left where the diagram
+     * was smallest. Statistics are recorded in the manager.
+     *
+     * @updates this
+     * @ensures <pre>
+     *      this.sat = #this.sat and
+     *      entries(this.vars) = entries(#this.vars)
+     * </pre>
+     */
+    public void reduceHeap() {
+        long start = System.nanoTime();
+        this.manager.maybeCollect();
+        int before = this.manager.dagSize(this.root);
+        int best = before;
+
+        int n = this.vars.length();
+        if (n > 1) {
+            // Positions are tracked for the variables of the initial order
+            VariableOrder order = this.varOrder();
+            int[] byPosition = new int[n];
+            int[] positions = new int[n];
+            for (int i = 0; i < n; i++) {
+                byPosition[i] = order.variable(i);
+                positions[i] = i;
+            }
+            int[] sizes = new int[n];
+            this.countLevels(order, positions, 0, n - 1, sizes);
+
+            // Sift the variables with the most nodes first
+            final int[] initialSizes = Arrays.copyOf(sizes, n);
+            Integer[] siftOrder = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                siftOrder[i] = i;
+            }
+            Arrays.sort(siftOrder, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer x, Integer y) {
+                    return Integer.compare(initialSizes[y], initialSizes[x]);
+                }
+            });
+
+            int current = before;
+            for (int i : siftOrder) {
+                int pos = positions[i];
+                int bestPos = pos;
+                int size = best;
+
+                // Sift toward the nearer end first, then toward the other
+                boolean downFirst = pos >= n / 2;
+                for (int pass = 0; pass < 2; pass++) {
+                    boolean down = (pass == 0) == downFirst;
+                    while ((down ? pos < n - 1 : pos > 0)
+                            && size <= MAX_GROWTH * best) {
+                        if (down) {
+                            current += this.siftSwap(byPosition, order,
+                                    positions, sizes, pos);
+                            pos++;
+                        } else {
+                            current += this.siftSwap(byPosition, order,
+                                    positions, sizes, pos - 1);
+                            pos--;
+                        }
+                        size = current;
+                        if (size < best) {
+                            best = size;
+                            bestPos = pos;
+                        }
                     }
+                    size = best;
+                }
+
+                // Return to the best position found
+                while (pos < bestPos) {
+                    current += this.siftSwap(byPosition, order, positions,
+                            sizes, pos);
+                    pos++;
+                }
+                while (pos > bestPos) {
+                    current += this.siftSwap(byPosition, order, positions,
+                            sizes, pos - 1);
+                    pos--;
                 }
-                currentDepth++;
             }
+
+            Sequence<Integer> newVars = this.vars.newInstance();
+            for (int v : byPosition) {
+                newVars.add(newVars.length(), v);
+            }
+            this.vars.transferFrom(newVars);
+            this.varOrder = null;
+        }
+
+        this.manager.recordReorder(before, best,
+                System.nanoTime() - start);
+    }
+
+    @Override
+    public boolean isEquivalent(BooleanStructure x) {
+        boolean result;
+        if (x instanceof BooleanStructure2) {
+            this.manager.maybeCollect();
+            result = (this.root == this.alignedRoot((BooleanStructure2) x));
+        } else {
+            result = super.isEquivalent(x);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        boolean result = (obj == this);
+        if (!result && obj instanceof BooleanStructure) {
+            BooleanStructure b = (BooleanStructure) obj;
+            result = this.vars.equals(b.vars()) && this.isEquivalent(b);
         }
 
-        return a;
+        return result;
+    }
+
+    @Override
+    protected int functionFingerprint() {
+        return this.manager.fingerprint(this.root);
+    }
+
+    @Override
+    public boolean isSat() {
+        return this.root != BDDManager.FALSE;
+    }
+
+    @Override
+    public boolean isValid() {
+        return this.root == BDDManager.TRUE;
+    }
+
+    @Override
+    public boolean isTrueStructure() {
+        return this.root == BDDManager.TRUE;
+    }
+
+    @Override
+    public boolean isFalseStructure() {
+        return this.root == BDDManager.FALSE;
+    }
+
+    @Override
+    public void satAssignment(Set<Integer> a) {
+        assert this.root != BDDManager.FALSE : "Violation of: SATISFIABLE(this)";
+
+        a.clear();
+
+        // Every edge other than FALSE has a path to TRUE, so follow the lo
+        // edge unless it is FALSE
+        int current = this.root;
+        while (!BDDManager.isLeaf(current)) {
+            int lo = this.manager.lo(current);
+            if (lo != BDDManager.FALSE) {
+                current = lo;
+            } else {
+                a.add(this.manager.var(current));
+                current = this.manager.hi(current);
+            }
+        }
     }
 
 }
@@ -20,7 +20,7 @@ import components.standard.Standard;
  *       ( a is subset of entries(exp.vars) ) and
  *     | exp.vars | = | entries(exp.vars) |
  *
- * BINARY_OPERATOR is { AND, OR, EQUIVALS }
+ * BINARY_OPERATOR is { AND, OR, EQUIVALS, XOR, NAND, NOR, IMPLIES, DIFF }
  *
  * UNARY_OPERATOR is { NOT, IDENTITY }
  * </pre>
@@ -59,7 +59,24 @@ import components.standard.Standard;
  *   ( p is in result.sat iff
  *     ( ( if op = AND then EVALUATION(m, p) and EVALUATION(n, p) ) and
  *       ( if op = OR then EVALUATION(m, p) or EVALUATION(n, p) ) and
- *       ( if op = EQUIVALS then EVALUATION(m, p) iff EVALUATION(n, p) ) ) )
+ *       ( if op = EQUIVALS then EVALUATION(m, p) iff EVALUATION(n, p) ) and
+ *       ( if op = XOR then not (EVALUATION(m, p) iff EVALUATION(n, p)) ) and
+ *       ( if op = NAND then not (EVALUATION(m, p) and EVALUATION(n, p)) ) and
+ *       ( if op = NOR then not (EVALUATION(m, p) or EVALUATION(n, p)) ) and
+ *       ( if op = IMPLIES then EVALUATION(m, p) implies EVALUATION(n, p) ) and
+ *       ( if op = DIFF then EVALUATION(m, p) and not EVALUATION(n, p) ) ) )
+ *
+ * ITE_APPLY(
+ *   result: BOOLEAN_STRUCTURE,
+ *   m: BOOLEAN_STRUCTURE,
+ *   n: BOOLEAN_STRUCTURE,
+ *   o: BOOLEAN_STRUCTURE
+ * ): boolean is
+ * VARIABLES(result) = VARIABLES(m) union VARIABLES(n) union VARIABLES(o) and
+ * for all p: ASSIGNMENT where ( p is subset of entries(result.vars) )
+ *   ( p is in result.sat iff
+ *     ( ( if EVALUATION(m, p) then EVALUATION(n, p) ) and
+ *       ( if not EVALUATION(m, p) then EVALUATION(o, p) ) ) )
  *
  * UNARY_APPLY(
  *   result: BOOLEAN_STRUCTURE,
@@ -156,6 +173,37 @@ public interface BooleanStructureKernel extends Standard<BooleanStructure> {
     void apply(BinaryOperator op, BooleanStructure other,
             Sequence<Integer> newVars);
 
+    /**
+     * Updates {@code this} to the structure that agrees with {@code g} where
+     * {@code this} is true and with {@code h} where {@code this} is false
+     * (if-then-else), fixing the total order of the variables to
+     * {@code newVars} in the result.
+     *
+     * @param g
+     *            the structure selected where this is true
+     * @param h
+     *            the structure selected where this is false
+     * @param newVars
+     *            the desired order of variables in the resulting
+     *            BooleanStructure
+     * @updates this, newVars
+     * @requires <pre>
+     *      entries(newVars) = VARIABLES(this) union VARIABLES(g) union
+     *                         VARIABLES(h) and
+     *      | newVars | = | entries(newVars) | and
+     *      IS_COMPATIBLE_ORDERING(this.vars, newVars) and
+     *      IS_COMPATIBLE_ORDERING(g.vars, newVars) and
+     *      IS_COMPATIBLE_ORDERING(h.vars, newVars)
+     * </pre>
+     * @ensures <pre>
+     *      ITE_APPLY(this, #this, g, h) and
+     *      this.vars = #newVars and
+     *      newVars = #this.vars
+     * </pre>
+     */
+    void ite(BooleanStructure g, BooleanStructure h,
+            Sequence<Integer> newVars);
+
     /**
      * Apply the unary operator {@code op} to {@code this} without changing the
      * total order of the variables of {@code this}.
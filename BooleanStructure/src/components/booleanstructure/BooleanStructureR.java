@@ -1,5 +1,7 @@
 package components.booleanstructure;
 
+import java.math.BigInteger;
+
 import components.sequence.Sequence;
 import components.sequence.Sequence1L;
 import components.set.Set;
@@ -39,6 +41,58 @@ public class BooleanStructureR extends BooleanStructureSecondary {
      * Private Helper methods
      */
 
+    /**
+     * Computes the fingerprint, as defined by
+     * {@code BDDManager.combineFingerprints}, of the function whose
+     * satisfying assignments on {@code order[level, | order |)} are the rows
+     * {@code rows[from, to)}, by partitioning the rows on each variable in
+     * turn. No assignment outside the rows is ever enumerated.
+     *
+     * @param rows
+     *            the assignments, one per row, by rank
+     * @param from
+     *            the first row of the range
+     * @param to
+     *            the end of the range
+     * @param level
+     *            the rank of the first variable still to split on
+     * @param order
+     *            the order
+     * @updates rows
+     * @return the fingerprint of the function
+     * @requires <pre>
+     * 0 <= from <= to <= | rows | and 0 <= level <= | order | and
+     * the rows of rows[from, to) are distinct
+     * </pre>
+     * @ensures perms(rows, #rows)
+     */
+    private static int rowsFingerprint(boolean[][] rows, int from, int to,
+            int level, VariableOrder order) {
+        int result = ~BDDManager.TRUE_FINGERPRINT;
+        if (from < to) {
+            if (level == order.length()) {
+                result = BDDManager.TRUE_FINGERPRINT;
+            } else {
+                // Move the rows where the variable is false to the front
+                int mid = from;
+                for (int i = from; i < to; i++) {
+                    if (!rows[i][level]) {
+                        boolean[] row = rows[i];
+                        rows[i] = rows[mid];
+                        rows[mid] = row;
+                        mid++;
+                    }
+                }
+                int lo = rowsFingerprint(rows, from, mid, level + 1, order);
+                int hi = rowsFingerprint(rows, mid, to, level + 1, order);
+                result = BDDManager.combineFingerprints(
+                        order.variable(level), lo, hi);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Reports whether {@code a} is in {@code sat} after filtering variables
      *
@@ -262,7 +316,12 @@ public class BooleanStructureR extends BooleanStructureSecondary {
          *          ( p is in newSat iff
          *            ( ( if op = AND then (p intersection entries($this.vars) is in $this.sat) and EVALUATION(x, p) ) and
          *              ( if op = OR then (p intersection entries($this.vars) is in $this.sat) or EVALUATION(x, p) ) and
-         *              ( if op = EQUIVALS then (p intersection entries($this.vars) is in $this.sat) iff EVALUATION(x, p) ) ) )
+         *              ( if op = EQUIVALS then (p intersection entries($this.vars) is in $this.sat) iff EVALUATION(x, p) ) and
+         *              ( if op = XOR then not ((p intersection entries($this.vars) is in $this.sat) iff EVALUATION(x, p)) ) and
+         *              ( if op = NAND then not ((p intersection entries($this.vars) is in $this.sat) and EVALUATION(x, p)) ) and
+         *              ( if op = NOR then not ((p intersection entries($this.vars) is in $this.sat) or EVALUATION(x, p)) ) and
+         *              ( if op = IMPLIES then (p intersection entries($this.vars) is in $this.sat) implies EVALUATION(x, p) ) and
+         *              ( if op = DIFF then (p intersection entries($this.vars) is in $this.sat) and not EVALUATION(x, p) ) ) )
          * </pre>
          *
          * @decreases |~allAssignments.unseen|
@@ -280,6 +339,21 @@ public class BooleanStructureR extends BooleanStructureSecondary {
                 case EQUIVALS:
                     shouldBeAdded = shouldBeAdded == x.evaluate(a);
                     break;
+                case XOR:
+                    shouldBeAdded = shouldBeAdded != x.evaluate(a);
+                    break;
+                case NAND:
+                    shouldBeAdded = !(shouldBeAdded && x.evaluate(a));
+                    break;
+                case NOR:
+                    shouldBeAdded = !(shouldBeAdded || x.evaluate(a));
+                    break;
+                case IMPLIES:
+                    shouldBeAdded = !shouldBeAdded || x.evaluate(a);
+                    break;
+                case DIFF:
+                    shouldBeAdded = shouldBeAdded && !x.evaluate(a);
+                    break;
                 default:
                     assert false : "Apply of unrecognized BinaryOperator: " + o;
             }
@@ -300,6 +374,60 @@ public class BooleanStructureR extends BooleanStructureSecondary {
         this.vars.transferFrom(tempVars);
     }
 
+    @Override
+    public void ite(BooleanStructure g, BooleanStructure h,
+            Sequence<Integer> newVars) {
+        assert seqToSet(newVars).equals(union(seqToSet(this.vars),
+                union(seqToSet(g.vars()), seqToSet(h.vars())))) : ""
+                        + "Violation of: entries(newVars) = VARIABLES(this)"
+                        + " union VARIABLES(g) union VARIABLES(h)";
+        assert newVars.length() == seqToSet(newVars).size() : "Violation of: "
+                + "| newVars | = | entries(newVars) |";
+        assert IS_COMPATIBLE_ORDERING(this.vars, newVars) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(this.vars, newVars)";
+        assert IS_COMPATIBLE_ORDERING(g.vars(), newVars) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(g.vars, newVars)";
+        assert IS_COMPATIBLE_ORDERING(h.vars(), newVars) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(h.vars, newVars)";
+
+        Set<Set<Integer>> newSat = new Set2<Set<Integer>>();
+
+        PowerStringElements allAssignments = new PowerStringElements(newVars);
+        /**
+         * @updates newSat, ~allAssignments
+         *
+         * @maintains <pre>
+         *        newSat is a subset of entries(~allAssignments.seen) and
+         *        for all p: ASSIGNMENT where ( p is in entries(~allAssignments.seen) )
+         *          ( p is in newSat iff
+         *            ( ( if (p intersection entries($this.vars) is in $this.sat) then EVALUATION(g, p) ) and
+         *              ( if not (p intersection entries($this.vars) is in $this.sat) then EVALUATION(h, p) ) ) )
+         * </pre>
+         *
+         * @decreases |~allAssignments.unseen|
+         */
+        for (Set<Integer> a : allAssignments) {
+            boolean shouldBeAdded;
+            if (processAssignment(this.sat, this.vars, a)) {
+                shouldBeAdded = g.evaluate(a);
+            } else {
+                shouldBeAdded = h.evaluate(a);
+            }
+
+            if (shouldBeAdded) {
+                newSat.add(a);
+            }
+        }
+
+        this.sat.transferFrom(newSat);
+
+        // Swap the contents of the two orders
+        Sequence<Integer> tempVars = new Sequence1L<Integer>();
+        tempVars.transferFrom(newVars);
+        newVars.transferFrom(this.vars);
+        this.vars.transferFrom(tempVars);
+    }
+
     @Override
     public void apply(UnaryOperator o) {
 
@@ -414,6 +542,28 @@ public class BooleanStructureR extends BooleanStructureSecondary {
         return this.vars;
     }
 
+    @Override
+    protected int representationSize() {
+        return this.sat.size();
+    }
+
+    @Override
+    protected int functionFingerprint() {
+        // Build one row per satisfying assignment, by rank
+        VariableOrder order = new VariableOrder(this.vars);
+        boolean[][] rows = new boolean[this.sat.size()][];
+        int next = 0;
+        for (Set<Integer> a : this.sat) {
+            rows[next] = new boolean[order.length()];
+            for (int v : a) {
+                rows[next][order.rank(v)] = true;
+            }
+            next++;
+        }
+
+        return rowsFingerprint(rows, 0, rows.length, 0, order);
+    }
+
     @Override
     public void setFromInt(int i) {
         this.sat.clear();
@@ -427,4 +577,14 @@ public class BooleanStructureR extends BooleanStructureSecondary {
         this.vars.add(0, i);
     }
 
+    /*
+     * Overridden secondary methods
+     * ---------------------------------------------
+     */
+
+    @Override
+    public BigInteger satCount() {
+        return BigInteger.valueOf(this.sat.size());
+    }
+
 }
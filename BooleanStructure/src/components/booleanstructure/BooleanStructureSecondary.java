@@ -1,7 +1,16 @@
 package components.booleanstructure;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.StringJoiner;
 
 import components.sequence.Sequence;
@@ -137,22 +146,25 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
             int start) {
         int index = -1;
 
+        // One pass of the iterator, since entry(i) is not constant-time
+        int i = 0;
         /**
          * @updates index, i
          *
          * @maintains <pre>
-         *      i >= start and
-         *      if x is in entries(order[start, i))
+         *      i = |~order.seen| and
+         *      if x is in entries(~order.seen[start, i))
          *              then order[index, index + 1) = <x>
-         *              else findIndex = -1
+         *              else index = -1
          * </pre>
          *
-         * @decreases |order| - i
+         * @decreases |~order.unseen|
          */
-        for (int i = start; i < order.length(); i++) {
-            if (order.entry(i) == x) {
+        for (int v : order) {
+            if (i >= start && v == x) {
                 index = i;
             }
+            i++;
         }
 
         return index;
@@ -160,7 +172,7 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
 
     /**
      * Given 2 orders, generate a new order which represents the combination of
-     * the two orders
+     * the two orders, in time linear in their lengths
      *
      * @param order1
      *            the first order
@@ -175,145 +187,899 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
      *      IS_COMPATIBLE_ORDERING(newOrder, order2)
      * </pre>
      */
-    private static Sequence<Integer> newOrder(Sequence<Integer> order1,
+    protected static Sequence<Integer> newOrder(Sequence<Integer> order1,
             Sequence<Integer> order2) {
+        return new VariableOrder(order1).merge(new VariableOrder(order2))
+                .toSequence();
+    }
 
-        Sequence<Integer> newOrder = new Sequence1L<Integer>();
+    /**
+     * Computes an order compatible with each of three orders, if there is
+     * one, in time linear in their lengths. Pairwise compatibility is not
+     * enough: {@code <1,2>}, {@code <2,3>} and {@code <3,1>} are pairwise
+     * compatible but no order is compatible with all three. The result is
+     * {@code newOrder(newOrder(order1, order2), order3)} when that order is
+     * compatible with order3.
+     *
+     * @param order1
+     *            the first order
+     * @param order2
+     *            the second order
+     * @param order3
+     *            the third order
+     * @return an order compatible with all three, or null if there is none
+     * @ensures <pre>
+     *      if there exists order: string of integer
+     *           (IS_COMPATIBLE_ORDERING(order1, order) and
+     *            IS_COMPATIBLE_ORDERING(order2, order) and
+     *            IS_COMPATIBLE_ORDERING(order3, order))
+     *      then entries(commonOrder) =
+     *             VARIABLES(order1) union VARIABLES(order2) union
+     *             VARIABLES(order3) and
+     *           | commonOrder | = | entries(commonOrder) | and
+     *           IS_COMPATIBLE_ORDERING(order1, commonOrder) and
+     *           IS_COMPATIBLE_ORDERING(order2, commonOrder) and
+     *           IS_COMPATIBLE_ORDERING(order3, commonOrder)
+     *      else commonOrder = null
+     * </pre>
+     */
+    protected static Sequence<Integer> commonOrder(Sequence<Integer> order1,
+            Sequence<Integer> order2, Sequence<Integer> order3) {
+        VariableOrder[] orders = { new VariableOrder(order1),
+                new VariableOrder(order2), new VariableOrder(order3) };
+        Sequence<Integer> result = null;
+        if (IS_COMPATIBLE_ORDERING(order1, order2)) {
+            VariableOrder merged = orders[0].merge(orders[1]);
+            if (merged.isCompatible(orders[2])) {
+                result = merged.merge(orders[2]).toSequence();
+            }
+        }
 
-        // Index to keep track up to which index elements of the 2nd order have
-        // been added
-        int secondIndex = 0;
-        /**
-         * @updates i, newOrder, secondIndex
-         *
-         * @maintains <pre>
-         *      entries(newOrder) = VARIABLES(order1[0, i)) union VARIABLES(order2[0, secondIndex)) and
-         *      | newOrder | = | entries(newOrder) | and
-         *      IS_COMPATIBLE_ORDERING(newOrder, order1) and
-         *      IS_COMPATIBLE_ORDERING(newOrder, order2)
-         * </pre>
-         *
-         * @decreases |order1| - i
-         */
-        for (int i = 0; i < order1.length(); i++) {
-            int current = order1.entry(i);
-
-            // Only add current if it hasn't been added already (through 2nd
-            // order)
-            if (findIndex(current, newOrder, 0) == -1) {
-                if (secondIndex < order2.length()) {
-                    // The index of current in the second order
-                    int cutoff = findIndex(current, order2, secondIndex);
-
-                    // Add all elements of the second order up to current
-                    /**
-                     * @updates newOrder, secondIndex
-                     *
-                     * @maintains newOrder = order2[#secondIndex, secondIndex)
-                     *
-                     * @decreases cutoff - secondIndex
-                     */
-                    while (secondIndex <= cutoff) {
-                        newOrder.add(newOrder.length(),
-                                order2.entry(secondIndex));
-                        secondIndex++;
+        if (result == null) {
+            /*
+             * Place, one at a time, a variable that is next in every order
+             * containing it, preferring the earlier orders. Any such choice
+             * keeps a common order reachable, so getting stuck before every
+             * variable is placed means there is none.
+             */
+            int[] next = new int[orders.length];
+            Sequence<Integer> placed = new Sequence1L<Integer>();
+            boolean stuck = false;
+            while (!stuck) {
+                int chosen = -1;
+                for (int k = 0; k < orders.length && chosen < 0; k++) {
+                    if (next[k] < orders[k].length()) {
+                        int v = orders[k].variable(next[k]);
+                        boolean ready = true;
+                        for (int j = 0; j < orders.length; j++) {
+                            int rank = orders[j].rank(v);
+                            ready = ready && (rank < 0 || rank == next[j]);
+                        }
+                        if (ready) {
+                            chosen = k;
+                        }
                     }
-
-                    // Add current if it wasn't in the second order
-                    if (cutoff == -1) {
-                        newOrder.add(newOrder.length(), current);
+                }
+                if (chosen < 0) {
+                    stuck = true;
+                } else {
+                    int v = orders[chosen].variable(next[chosen]);
+                    placed.add(placed.length(), v);
+                    for (int k = 0; k < orders.length; k++) {
+                        if (next[k] < orders[k].length()
+                                && orders[k].variable(next[k]) == v) {
+                            next[k]++;
+                        }
                     }
+                }
+            }
+            boolean done = true;
+            for (int k = 0; k < orders.length; k++) {
+                done = done && next[k] == orders[k].length();
+            }
+            if (done) {
+                result = placed;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports whether two variable orderings are compatible, in time linear
+     * in their lengths
+     *
+     * @param x
+     *            the first ordering
+     * @param y
+     *            the second ordering
+     * @return true iff x and y have a compatible ordering
+     * @ensures IS_COMPATIBLE_ORDERING(x, y)
+     */
+    protected static boolean IS_COMPATIBLE_ORDERING(Sequence<Integer> x,
+            Sequence<Integer> y) {
+        return new VariableOrder(x).isCompatible(y);
+    }
+
+    /**
+     * Reports a measure of the size of the representation of {@code this},
+     * used to conjoin the smallest partial results first. By default this is
+     * the number of variables; implementations should report the number of
+     * nodes, entries or other units their operations take time in.
+     *
+     * @return the size of the representation of this
+     * @ensures representationSize >= 0
+     */
+    protected int representationSize() {
+        return this.numVariables();
+    }
+
+    /**
+     * Reorders the variables of {@code this} to reduce the size of its
+     * representation, if the implementation judges it due. Called on the
+     * partial results of {@code setFromTree} and {@code setFromCNF} when no
+     * order is imposed on them. This implementation does nothing.
+     *
+     * @updates this
+     * @ensures <pre>
+     *      this.sat = #this.sat and
+     *      entries(this.vars) = entries(#this.vars)
+     * </pre>
+     */
+    protected void reorderIfDue() {
+    }
 
+    /**
+     * Combines {@code x} into {@code s} by {@code op}, first reordering
+     * {@code x} if its order is not compatible with the order of {@code s}:
+     * the variables it shares with {@code s} are put in the order of
+     * {@code s}, followed by its other variables in their current order.
+     *
+     * @param s
+     *            the structure combined into
+     * @param op
+     *            AND or OR
+     * @param x
+     *            the structure combined
+     * @updates s, x
+     * @ensures s.sat = [#s op #x] and x.sat = #x.sat
+     */
+    private static void align(BooleanStructure s, BinaryOperator op,
+            BooleanStructure x) {
+        VariableOrder order = new VariableOrder(s.vars());
+        if (!order.isCompatible(x.vars())) {
+            int[] shared = new int[x.numVariables()];
+            int count = 0;
+            Sequence<Integer> rest = new Sequence1L<Integer>();
+            for (int v : x.vars()) {
+                if (order.contains(v)) {
+                    shared[count] = order.rank(v);
+                    count++;
+                } else {
+                    rest.add(rest.length(), v);
                 }
-                // All elements of second index have already been added
-                else {
-                    newOrder.add(newOrder.length(), current);
+            }
+            Arrays.sort(shared, 0, count);
+
+            Sequence<Integer> newVars = new Sequence1L<Integer>();
+            for (int i = 0; i < count; i++) {
+                newVars.add(newVars.length(), order.variable(shared[i]));
+            }
+            newVars.append(rest);
+            x.reorder(newVars);
+        }
+        if (op == BinaryOperator.AND) {
+            s.conj(x);
+        } else {
+            s.disj(x);
+        }
+    }
+
+    /**
+     * Combines {@code x} into {@code s} by {@code op}. If {@code order} is
+     * not null, the result takes the subsequence of {@code order} holding its
+     * variables, so that every structure built from {@code order} follows
+     * it; otherwise x is first aligned with s, and s may then be reordered
+     * by {@code reorderIfDue}.
+     *
+     * @param s
+     *            the structure combined into
+     * @param op
+     *            AND or OR
+     * @param x
+     *            the structure combined
+     * @param order
+     *            the order to follow, or null
+     * @updates s, x
+     * @requires <pre>
+     * if order /= null then
+     *   VARIABLES(s) union VARIABLES(x) is subset of entries(order) and
+     *   IS_COMPATIBLE_ORDERING(s.vars, order) and
+     *   IS_COMPATIBLE_ORDERING(x.vars, order)
+     * </pre>
+     * @ensures s.sat = [#s op #x] and x.sat = #x.sat
+     */
+    private static void combine(BooleanStructure s, BinaryOperator op,
+            BooleanStructure x, VariableOrder order) {
+        if (order != null) {
+            // Both orders follow order, so merge their ranks
+            int[] ranks = new int[s.numVariables() + x.numVariables()];
+            int count = 0;
+            for (int v : s.vars()) {
+                ranks[count] = order.rank(v);
+                count++;
+            }
+            for (int v : x.vars()) {
+                ranks[count] = order.rank(v);
+                count++;
+            }
+            Arrays.sort(ranks, 0, count);
+
+            Sequence<Integer> newVars = new Sequence1L<Integer>();
+            for (int i = 0; i < count; i++) {
+                assert ranks[i] >= 0 : ""
+                        + "Violation of: VARIABLES(s) union VARIABLES(x)"
+                        + " is subset of entries(order)";
+                if (i == 0 || ranks[i] != ranks[i - 1]) {
+                    newVars.add(newVars.length(), order.variable(ranks[i]));
                 }
             }
+            s.apply(op, x, newVars);
+        } else {
+            align(s, op, x);
+            if (s instanceof BooleanStructureSecondary) {
+                ((BooleanStructureSecondary) s).reorderIfDue();
+            }
+        }
+    }
+
+    /**
+     * A partial result waiting in a {@code SMALLEST_FIRST} conjunction,
+     * ordered by size and then by the order it was added in.
+     */
+    private static final class Conjunct implements Comparable<Conjunct> {
+
+        /**
+         * The partial result.
+         */
+        private final BooleanStructure structure;
 
+        /**
+         * The size of structure when it was added.
+         */
+        private final int size;
+
+        /**
+         * The number of conjuncts added before this one.
+         */
+        private final long sequence;
+
+        /**
+         * Constructor from a structure and its position.
+         *
+         * @param structure
+         *            the partial result
+         * @param sequence
+         *            the number of conjuncts added before it
+         */
+        Conjunct(BooleanStructure structure, long sequence) {
+            this.structure = structure;
+            this.size = size(structure);
+            this.sequence = sequence;
         }
 
-        // Add remaining elements of second order
         /**
-         * @updates newOrder, secondIndex
+         * Reports the size of the representation of {@code s}.
          *
-         * @maintains entries(newOrder) = entries(#newOrder) union
-         *            VARIABLES(order2[#secondIndex, secondIndex))
+         * @param s
+         *            the structure
+         * @return the size of the representation of s
+         */
+        private static int size(BooleanStructure s) {
+            int result = s.numVariables();
+            if (s instanceof BooleanStructureSecondary) {
+                result = ((BooleanStructureSecondary) s).representationSize();
+            }
+
+            return result;
+        }
+
+        @Override
+        public int compareTo(Conjunct other) {
+            int result = Integer.compare(this.size, other.size);
+            if (result == 0) {
+                result = Long.compare(this.sequence, other.sequence);
+            }
+
+            return result;
+        }
+
+    }
+
+    /**
+     * Conjunction of a stream of conjuncts, in the order given by a
+     * {@code ConjunctionSchedule}. {@code LINEAR} keeps one accumulator;
+     * {@code BALANCED} keeps a stack of partial results, one per level of a
+     * balanced tree, and merges the top two whenever they reach the same
+     * level, as in a binary counter; {@code SMALLEST_FIRST} keeps every
+     * partial result in a priority queue.
+     */
+    private static final class Conjunction {
+
+        /**
+         * The structure used to create new instances.
+         */
+        private final BooleanStructure b;
+
+        /**
+         * The order in which conjuncts are conjoined.
+         */
+        private final ConjunctionSchedule schedule;
+
+        /**
+         * The order every partial result follows, or null.
+         */
+        private final VariableOrder order;
+
+        /**
+         * Partial results of LINEAR and BALANCED, the latest on top.
+         */
+        private final ArrayDeque<BooleanStructure> partials;
+
+        /**
+         * The level of each partial result of BALANCED.
+         */
+        private final ArrayDeque<Integer> levels;
+
+        /**
+         * Partial results of SMALLEST_FIRST.
+         */
+        private final PriorityQueue<Conjunct> queue;
+
+        /**
+         * The number of conjuncts and partial results added so far.
+         */
+        private long added;
+
+        /**
+         * Constructor from a structure, a schedule and an order.
          *
-         * @decreases |order2| - secondIndex
+         * @param b
+         *            the structure used to create new instances
+         * @param schedule
+         *            the order in which conjuncts are conjoined
+         * @param order
+         *            the order every partial result follows, or null
          */
-        while (secondIndex < order2.length()) {
-            newOrder.add(newOrder.length(), order2.entry(secondIndex));
-            secondIndex++;
+        Conjunction(BooleanStructure b, ConjunctionSchedule schedule,
+                VariableOrder order) {
+            this.b = b;
+            this.schedule = schedule;
+            this.order = order;
+            this.partials = new ArrayDeque<BooleanStructure>();
+            this.levels = new ArrayDeque<Integer>();
+            this.queue = new PriorityQueue<Conjunct>();
+            this.added = 0;
         }
 
-        return newOrder;
+        /**
+         * Adds {@code x} to the conjuncts of {@code this}, which takes it
+         * over.
+         *
+         * @param x
+         *            the conjunct
+         */
+        void add(BooleanStructure x) {
+            if (this.schedule == ConjunctionSchedule.SMALLEST_FIRST) {
+                this.queue.add(new Conjunct(x, this.added));
+            } else if (this.schedule == ConjunctionSchedule.BALANCED) {
+                BooleanStructure current = x;
+                int level = 0;
+                while (!this.levels.isEmpty() && this.levels.peek() == level) {
+                    BooleanStructure left = this.partials.pop();
+                    this.levels.pop();
+                    combine(left, BinaryOperator.AND, current, this.order);
+                    current = left;
+                    level++;
+                }
+                this.partials.push(current);
+                this.levels.push(level);
+            } else if (this.partials.isEmpty()) {
+                this.partials.push(x);
+            } else {
+                combine(this.partials.peek(), BinaryOperator.AND, x,
+                        this.order);
+            }
+            this.added++;
+        }
+
+        /**
+         * Conjoins the partial results of {@code this}.
+         *
+         * @return the conjunction of the conjuncts added, or a true
+         *         structure if there are none
+         */
+        BooleanStructure result() {
+            BooleanStructure result;
+            if (this.schedule == ConjunctionSchedule.SMALLEST_FIRST) {
+                while (this.queue.size() > 1) {
+                    BooleanStructure first = this.queue.poll().structure;
+                    BooleanStructure second = this.queue.poll().structure;
+                    combine(first, BinaryOperator.AND, second, this.order);
+                    this.queue.add(new Conjunct(first, this.added));
+                    this.added++;
+                }
+                Conjunct last = this.queue.poll();
+                if (last == null) {
+                    result = this.b.newInstance();
+                } else {
+                    result = last.structure;
+                }
+            } else if (this.partials.isEmpty()) {
+                result = this.b.newInstance();
+            } else {
+                // Fold the remaining levels, the latest into the earlier
+                result = this.partials.pop();
+                while (!this.partials.isEmpty()) {
+                    BooleanStructure left = this.partials.pop();
+                    combine(left, BinaryOperator.AND, result, this.order);
+                    result = left;
+                }
+                this.levels.clear();
+            }
+
+            return result;
+        }
 
     }
 
     /**
-     * Reports whether two variable orderings are compatible
+     * Creates a structure representing the formula of {@code st}, visiting
+     * its nodes in post-order with explicit stacks, so that the depth of
+     * {@code st} is bounded by memory rather than by the call stack. The
+     * operands of each operator are combined into the structure of its left
+     * operand, and the structure of its right operand is kept to hold a
+     * later leaf, so a left-deep tree needs only two structures. Unless
+     * {@code schedule} is {@code LINEAR}, each chain of "and" nodes is
+     * flattened into its conjuncts, which are conjoined as {@code schedule}
+     * says. If {@code order} is not null, every structure built follows it.
+     * An operator node reached through several parents, as the parsers make
+     * equal subformulas, is built once; its other uses get copies.
      *
-     * @param x
-     *            the first ordering
-     * @param y
-     *            the second ordering
-     * @return true iff x and y have a compatible ordering
-     * @ensures IS_COMPATIBLE_ORDERING(x, y)
+     * @param b
+     *            the structure used to create new instances
+     * @param st
+     *            the syntax tree
+     * @param schedule
+     *            the order in which conjuncts are conjoined
+     * @param order
+     *            the variable order to follow, or null
+     * @return the structure of st
+     * @requires <pre>
+     * if order /= null then [the variables of st are in entries(order)]
+     * </pre>
+     * @ensures [createFromTree represents the propositional formula
+     *          expressed in st]
      */
-    protected static boolean IS_COMPATIBLE_ORDERING(Sequence<Integer> x,
-            Sequence<Integer> y) {
-        boolean result = true;
-        for (int i = 0; i < x.length(); i++) {
-            int xi = x.entry(i);
-            for (int j = 0; j < x.length(); j++) {
-                int xj = x.entry(j);
-                for (int u = 0; u < y.length(); u++) {
-                    int yu = y.entry(u);
-                    for (int v = 0; v < y.length(); v++) {
-                        int yv = y.entry(v);
-                        if (xi == yu && xj == yv) {
-                            result = result && ((i < j) == (u < v));
-                        }
+    private static BooleanStructure createFromTree(BooleanStructure b,
+            SyntaxTree st, ConjunctionSchedule schedule, VariableOrder order) {
+        // Each pending node is paired with -1 until its operands are
+        // pending, then with the number of its operands
+        ArrayDeque<SyntaxTree> pending = new ArrayDeque<SyntaxTree>();
+        ArrayDeque<Integer> arity = new ArrayDeque<Integer>();
+        ArrayDeque<BooleanStructure> operands;
+        operands = new ArrayDeque<BooleanStructure>();
+        ArrayDeque<BooleanStructure> spare = new ArrayDeque<BooleanStructure>();
+
+        // Count the parents of each operator node, each distinct parent once
+        IdentityHashMap<SyntaxTree, Integer> uses;
+        uses = new IdentityHashMap<SyntaxTree, Integer>();
+        pending.push(st);
+        uses.put(st, 1);
+        while (!pending.isEmpty()) {
+            SyntaxTree current = pending.pop();
+            SyntaxTree[] children = { current.left(), current.right() };
+            for (SyntaxTree child : children) {
+                if (child != null && child.right() != null) {
+                    Integer count = uses.get(child);
+                    if (count == null) {
+                        uses.put(child, 1);
+                        pending.push(child);
+                    } else {
+                        uses.put(child, count + 1);
                     }
                 }
             }
         }
-        return result;
+        // Structures of shared nodes, and how many uses each has left
+        IdentityHashMap<SyntaxTree, BooleanStructure> built;
+        built = new IdentityHashMap<SyntaxTree, BooleanStructure>();
+        IdentityHashMap<SyntaxTree, Integer> remaining;
+        remaining = new IdentityHashMap<SyntaxTree, Integer>();
+
+        pending.push(st);
+        arity.push(-1);
+        /**
+         * @updates pending, arity, operands, spare, built, remaining
+         *
+         * @maintains <pre>
+         * | pending | = | arity | and
+         * [operands holds the structures of the subtrees already visited
+         *  whose operator is still pending, the innermost on top]
+         * </pre>
+         *
+         * @decreases [nodes of st not yet visited or combined]
+         */
+        while (!pending.isEmpty()) {
+            SyntaxTree current = pending.pop();
+            int n = arity.pop();
+            boolean combined = false;
+
+            if (current.right() == null) {
+                // Split into variable case and constant cases
+                BooleanStructure leaf = spare.poll();
+                if (leaf == null) {
+                    leaf = b.newInstance();
+                }
+                if (current.label().equals("T")) {
+                    leaf.clear();
+                } else if (current.label().equals("F")) {
+                    leaf.clear();
+                    leaf.negate();
+                } else {
+                    leaf.setFromInt(Integer.parseInt(current.label()));
+                }
+                operands.push(leaf);
+            } else if (n < 0 && built.containsKey(current)) {
+                // Reuse the structure of an equal subformula, handing over
+                // the structure itself at its last use
+                int left = remaining.get(current) - 1;
+                if (left == 0) {
+                    operands.push(built.remove(current));
+                    remaining.remove(current);
+                } else {
+                    BooleanStructure copy = spare.poll();
+                    if (copy == null) {
+                        copy = b.newInstance();
+                    }
+                    copy.copyFrom(built.get(current));
+                    operands.push(copy);
+                    remaining.put(current, left);
+                }
+            } else if (n < 0 && current.label().equals("and")
+                    && schedule != ConjunctionSchedule.LINEAR) {
+                // Flatten the chain of "and" nodes, rightmost conjunct first
+                ArrayDeque<SyntaxTree> conjuncts;
+                conjuncts = new ArrayDeque<SyntaxTree>();
+                ArrayDeque<SyntaxTree> walk = new ArrayDeque<SyntaxTree>();
+                walk.push(current);
+                while (!walk.isEmpty()) {
+                    SyntaxTree node = walk.pop();
+                    if (node.label().equals("and")
+                            && (node == current || uses.get(node) == 1)) {
+                        walk.push(node.left());
+                        walk.push(node.right());
+                    } else {
+                        conjuncts.addLast(node);
+                    }
+                }
+                pending.push(current);
+                arity.push(conjuncts.size());
+                for (SyntaxTree conjunct : conjuncts) {
+                    pending.push(conjunct);
+                    arity.push(-1);
+                }
+            } else if (n < 0) {
+                // Visit the operands first, the left one before the right
+                pending.push(current);
+                if (current.left() == null) {
+                    arity.push(1);
+                } else {
+                    arity.push(2);
+                }
+                pending.push(current.right());
+                arity.push(-1);
+                if (current.left() != null) {
+                    pending.push(current.left());
+                    arity.push(-1);
+                }
+            } else if (current.label().equals("not")) {
+                operands.peek().negate();
+                combined = true;
+            } else if (current.label().equals("and")
+                    && schedule != ConjunctionSchedule.LINEAR) {
+                BooleanStructure[] conjuncts = new BooleanStructure[n];
+                for (int i = n - 1; i >= 0; i--) {
+                    conjuncts[i] = operands.pop();
+                }
+                Conjunction conjunction = new Conjunction(b, schedule, order);
+                for (BooleanStructure conjunct : conjuncts) {
+                    conjunction.add(conjunct);
+                }
+                operands.push(conjunction.result());
+                combined = true;
+            } else {
+                BooleanStructure secondExp = operands.pop();
+                BooleanStructure newExp = operands.peek();
+
+                if (current.label().equals("and")) {
+                    combine(newExp, BinaryOperator.AND, secondExp, order);
+                } else {
+                    combine(newExp, BinaryOperator.OR, secondExp, order);
+                }
+                spare.push(secondExp);
+                combined = true;
+            }
+
+            if (combined && uses.get(current) > 1) {
+                // Keep the structure for the other uses of current
+                BooleanStructure copy = spare.poll();
+                if (copy == null) {
+                    copy = b.newInstance();
+                }
+                copy.copyFrom(operands.peek());
+                built.put(current, operands.pop());
+                remaining.put(current, uses.get(current) - 1);
+                operands.push(copy);
+            }
+        }
+
+        return operands.pop();
     }
 
-    // Private method to create a BooleanExpression1 by parsing a SyntaxTree
-    private static BooleanStructure createFromTree(BooleanStructure b,
-            SyntaxTree st) {
-        BooleanStructure newExp;
-
-        // Split into variable case and operator cases
-        if (st.right() == null) {
-            if (st.label().equals("T")) {
-                newExp = b.newInstance();
-            } else if (st.label().equals("F")) {
-                newExp = b.newInstance();
-                newExp.negate();
+    /**
+     * Reports the cofactor of {@code s} with variable {@code x} set to
+     * {@code value}, leaving {@code s} unchanged.
+     *
+     * @param s
+     *            the structure
+     * @param x
+     *            the variable
+     * @param value
+     *            the value given to x
+     * @return a copy of s with x restricted to value, if x is a variable of s
+     */
+    private static BooleanStructure cofactor(BooleanStructure s, int x,
+            boolean value) {
+        BooleanStructure result = s.newInstance();
+        result.copyFrom(s);
+
+        boolean found = false;
+        for (int v : s.vars()) {
+            found = found || v == x;
+        }
+        if (found) {
+            Set<Integer> t = new Set4<Integer>();
+            t.add(x);
+            Set<Integer> f = t.newInstance();
+            if (value) {
+                result.restrict(t, f);
             } else {
-                newExp = b.newInstance();
-                newExp.setFromInt(Integer.parseInt(st.label()));
+                result.restrict(f, t);
             }
-        } else if (st.label().equals("not")) {
-            newExp = createFromTree(b, st.right());
+        }
 
-            newExp.negate();
-        } else {
-            newExp = createFromTree(b, st.left());
-            BooleanStructure secondExp = createFromTree(b, st.right());
+        return result;
+    }
 
-            if (st.label().equals("and")) {
-                newExp.conj(secondExp);
+    /**
+     * Expands {@code s} to the variables {@code order[i, |order|)} and
+     * reorders it to that order.
+     *
+     * @param s
+     *            the structure
+     * @param order
+     *            the variable order
+     * @param i
+     *            the position of the first variable kept
+     * @updates s
+     * @requires VARIABLES(s) is subset of entries(order[i, |order|))
+     * @ensures s.sat = #s.sat and s.vars = order[i, |order|)
+     */
+    private static void alignToSuffix(BooleanStructure s, int[] order,
+            int i) {
+        Set<Integer> present = seqToSet(s.vars());
+        Set<Integer> missing = new Set4<Integer>();
+        Sequence<Integer> suffix = new Sequence1L<Integer>();
+        for (int j = i; j < order.length; j++) {
+            suffix.add(suffix.length(), order[j]);
+            if (!present.contains(order[j])) {
+                missing.add(order[j]);
+            }
+        }
+
+        s.expand(missing);
+        s.reorder(suffix);
+    }
+
+    /**
+     * Computes the generalized cofactor (constrain) or the Coudert-Madre
+     * restriction (simplify) of {@code f} by {@code c}, by Shannon
+     * decomposition on the variables {@code order[i, |order|)}.
+     *
+     * @param f
+     *            the structure being simplified
+     * @param c
+     *            the care set
+     * @param order
+     *            the variable order
+     * @param i
+     *            the position of the first variable not yet decomposed
+     * @param simplify
+     *            whether to compute the restriction rather than the
+     *            generalized cofactor
+     * @return the simplified structure
+     * @requires <pre>
+     *   VARIABLES(f) union VARIABLES(c) is subset of entries(order[i, |order|))
+     * </pre>
+     * @ensures SIMPLIFICATION(generalizedCofactor, f, c)
+     */
+    private static BooleanStructure generalizedCofactor(BooleanStructure f,
+            BooleanStructure c, int[] order, int i, boolean simplify) {
+        BooleanStructure result = f.newInstance();
+        if (!c.isSat()) {
+            result.negate();
+        } else if (c.isValid() || f.isValid() || !f.isSat()) {
+            result.copyFrom(f);
+        } else {
+            int x = order[i];
+            BooleanStructure f0 = cofactor(f, x, false);
+            BooleanStructure f1 = cofactor(f, x, true);
+            BooleanStructure c0 = cofactor(c, x, false);
+            BooleanStructure c1 = cofactor(c, x, true);
+            if (simplify && f0.isEquivalent(f1)) {
+                // f does not depend on x, so neither may the result
+                c0.disj(c1);
+                result = generalizedCofactor(f0, c0, order, i + 1, simplify);
+            } else if (!c0.isSat()) {
+                result = generalizedCofactor(f1, c1, order, i + 1, simplify);
+            } else if (!c1.isSat()) {
+                result = generalizedCofactor(f0, c0, order, i + 1, simplify);
             } else {
-                newExp.disj(secondExp);
+                BooleanStructure lo = generalizedCofactor(f0, c0, order, i + 1,
+                        simplify);
+                BooleanStructure hi = generalizedCofactor(f1, c1, order, i + 1,
+                        simplify);
+                alignToSuffix(lo, order, i + 1);
+                alignToSuffix(hi, order, i + 1);
+
+                // if x then hi else lo
+                result.setFromInt(x);
+                result.ite(hi, lo);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Given the order of a structure and the structures to be substituted
+     * for some of its variables, generates an order compatible with all of
+     * them.
+     *
+     * @param vars
+     *            the order of the structure
+     * @param map
+     *            the structure substituted for each variable
+     * @return the combination of vars and the orders of the values of map
+     * @requires <pre>
+     *      for all v, w: integer where ( v, w are in map.keySet() )
+     *        ( IS_COMPATIBLE_ORDERING(vars, map.get(v).vars) and
+     *          IS_COMPATIBLE_ORDERING(map.get(v).vars, map.get(w).vars) )
+     * </pre>
+     * @ensures <pre>
+     *      IS_COMPATIBLE_ORDERING(composedOrder, vars) and
+     *      for all v: integer where ( v is in map.keySet() )
+     *        ( IS_COMPATIBLE_ORDERING(composedOrder, map.get(v).vars) )
+     * </pre>
+     */
+    protected static Sequence<Integer> composedOrder(Sequence<Integer> vars,
+            Map<Integer, BooleanStructure> map) {
+        VariableOrder order = new VariableOrder(vars);
+        for (BooleanStructure g : map.values()) {
+            assert order.isCompatible(g.vars()) : ""
+                    + "Violation of: the orders of this and of the values of"
+                    + " map are compatible";
+            order = order.merge(new VariableOrder(g.vars()));
+        }
+
+        return order.toSequence();
+    }
+
+    /**
+     * Removes from {@code order} the variables that are substituted by
+     * {@code map} and occur in none of its values.
+     *
+     * @param order
+     *            the combined order
+     * @param map
+     *            the structure substituted for each variable
+     * @updates order
+     * @ensures <pre>
+     *      order = [#order without the variables of map.keySet() that are
+     *               not variables of any value of map]
+     * </pre>
+     */
+    protected static void dropSubstituted(Sequence<Integer> order,
+            Map<Integer, BooleanStructure> map) {
+        Set<Integer> kept = new Set4<Integer>();
+        for (BooleanStructure g : map.values()) {
+            for (int v : g.vars()) {
+                if (!kept.contains(v)) {
+                    kept.add(v);
+                }
             }
         }
 
-        return newExp;
+        Sequence<Integer> newOrder = order.newInstance();
+        for (int v : order) {
+            if (!map.containsKey(v) || kept.contains(v)) {
+                newOrder.add(newOrder.length(), v);
+            }
+        }
+        order.transferFrom(newOrder);
+    }
+
+    /**
+     * Reorders {@code s} to the subsequence of {@code order} holding its
+     * variables.
+     *
+     * @param s
+     *            the structure
+     * @param order
+     *            the variable order
+     * @updates s
+     * @requires VARIABLES(s) is subset of entries(order)
+     * @ensures s.sat = #s.sat and IS_COMPATIBLE_ORDERING(s.vars, order)
+     */
+    private static void alignTo(BooleanStructure s, Sequence<Integer> order) {
+        Set<Integer> present = seqToSet(s.vars());
+        Sequence<Integer> newVars = new Sequence1L<Integer>();
+        for (int v : order) {
+            if (present.contains(v)) {
+                newVars.add(newVars.length(), v);
+            }
+        }
+
+        s.reorder(newVars);
+    }
+
+    /**
+     * Substitutes {@code subs[j]} for {@code keys[j]} in {@code f}, for every
+     * j >= i, by Shannon expansion on the substituted variables.
+     *
+     * @param f
+     *            the structure
+     * @param keys
+     *            the substituted variables
+     * @param subs
+     *            the structure substituted for each variable of keys
+     * @param i
+     *            the position of the first substitution still to be made
+     * @param order
+     *            an order compatible with f and every entry of subs
+     * @return the result of the substitution, ordered compatibly with order
+     * @requires entries(keys[i, |keys|)) is subset of VARIABLES(f)
+     */
+    private static BooleanStructure substitute(BooleanStructure f,
+            int[] keys, BooleanStructure[] subs, int i,
+            Sequence<Integer> order) {
+        BooleanStructure result = f.newInstance();
+        if (i == keys.length) {
+            result.copyFrom(f);
+        } else {
+            BooleanStructure hi = substitute(cofactor(f, keys[i], true), keys,
+                    subs, i + 1, order);
+            BooleanStructure lo = substitute(cofactor(f, keys[i], false),
+                    keys, subs, i + 1, order);
+
+            // if subs[i] then hi else lo
+            result.copyFrom(subs[i]);
+            result.ite(hi, lo);
+        }
+        alignTo(result, order);
+
+        return result;
     }
 
     /*
@@ -356,25 +1122,48 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
     }
 
     /**
-     * Calculate the integer of the log base 2 of a number.
+     * Computes the fingerprint of the function of {@code this} on the
+     * variables {@code order[i, |order|)} with the variables of
+     * {@code order[0, i)} fixed by {@code a}, by Shannon decomposition in
+     * the order of {@code order}.
      *
-     * @param x
-     *            the number whose log is calculated
-     * @return the floor of the log (base 2) of the number
-     * @requires x > 0
-     * @ensures 2 ^ (logBase2) <= x < 2 ^ (logBase2 + 1)
+     * @param order
+     *            the variables of this, in order
+     * @param i
+     *            the number of variables already fixed
+     * @param a
+     *            the variables of order[0, i) assigned true
+     * @return the fingerprint of the cofactor
+     * @updates a
+     * @requires 0 <= i <= |order| and a is subset of entries(order[0, i))
+     * @ensures a = #a
      */
-    private static int logBase2(int x) {
-        assert x > 0 : "x > 0";
-        return 31 - Integer.numberOfLeadingZeros(x);
+    private int fingerprint(int[] order, int i, Set<Integer> a) {
+        int result;
+        if (i == order.length) {
+            result = BDDManager.TRUE_FINGERPRINT;
+            if (!this.evaluate(a)) {
+                result = ~result;
+            }
+        } else {
+            int lo = this.fingerprint(order, i + 1, a);
+            a.add(order[i]);
+            int hi = this.fingerprint(order, i + 1, a);
+            a.remove(order[i]);
+            result = BDDManager.combineFingerprints(order[i], lo, hi);
+        }
+
+        return result;
     }
 
-    @Override
-    public int hashCode() {
-        /*
-         * Number of rows to include in calculation. assert sampleSize > 0
-         */
-        final int sampleSize = 60;
+    /**
+     * Hashes the variable order {@code vars}.
+     *
+     * @param vars
+     *            the variable order
+     * @return the hash of vars
+     */
+    protected static int orderHash(Sequence<Integer> vars) {
         /*
          * Parameters for hashing.
          */
@@ -382,45 +1171,46 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
         final int b = 17;
 
         int result = 0;
-
-        Sequence<Integer> thisOrder = this.vars();
-
-        for (Integer elt : thisOrder) {
+        for (Integer elt : vars) {
             result = a * result + b * elt.hashCode();
         }
 
-        int fingerprint = 0;
-        boolean sampleEveryRow = (thisOrder.length() <= logBase2(sampleSize));
-        Random rnd = new Random(result);
-        PowerStringElements allAssignments = new PowerStringElements(
-                this.vars());
-        Iterator<Set<Integer>> it = allAssignments.iterator();
-        int i = 0;
-        while ((sampleEveryRow && it.hasNext())
-                || (!sampleEveryRow && i < sampleSize)) {
-            fingerprint = Integer.rotateLeft(fingerprint, 1);
-
-            Set<Integer> t;
-            if (sampleEveryRow) {
-                t = it.next();
-            } else {
-                t = ((PowerStringElements.PowerStringIterator) it)
-                        .randomNext(rnd);
-                i++;
-            }
-
-            /*
-             * Flip the least significant bit depending on whether this row is
-             * true.
-             */
-            if (this.evaluate(t)) {
-                fingerprint = fingerprint ^ 0x1;
-            }
+        return result;
+    }
 
+    /**
+     * Computes the fingerprint of the function of {@code this} in the order
+     * {@code this.vars}, as defined by {@code BDDManager.combineFingerprints}.
+     * Implementations override it with a computation proportional to the
+     * size of their representation; this one evaluates every assignment.
+     *
+     * @return the fingerprint of the function of this
+     * @ensures <pre>
+     * [functionFingerprint is the fingerprint of the reduced Shannon
+     *  decomposition of this in the order this.vars]
+     * </pre>
+     */
+    protected int functionFingerprint() {
+        Sequence<Integer> thisOrder = this.vars();
+        int[] order = new int[thisOrder.length()];
+        int i = 0;
+        for (int v : thisOrder) {
+            order[i] = v;
+            i++;
         }
-        result = result ^ Integer.hashCode(fingerprint);
 
-        return result;
+        return this.fingerprint(order, 0, new Set4<Integer>());
+    }
+
+    @Override
+    public int hashCode() {
+        /*
+         * Combine the order with a fingerprint of the function's reduced
+         * Shannon decomposition in that order. The fingerprint depends only
+         * on the function and the order, which equals compares, so equal
+         * structures hash alike whatever their implementations.
+         */
+        return orderHash(this.vars()) ^ this.functionFingerprint();
     }
 
     @Override
@@ -521,15 +1311,21 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
         this.apply(BinaryOperator.OR, x, newOrder);
     }
 
+    @Override
+    public void ite(BooleanStructure g, BooleanStructure h) {
+        Sequence<Integer> newOrder = commonOrder(this.vars(), g.vars(),
+                h.vars());
+        assert newOrder != null : "Violation of: there exists an order "
+                + "compatible with this.vars, g.vars and h.vars";
+
+        this.ite(g, h, newOrder);
+    }
+
     @Override
     public void expand(Set<Integer> newVars) {
         assert intersection(seqToSet(this.vars()), newVars).equals(newVars
                 .newInstance()) : "Violation of: newVars intersection this.vars = empty_set";
 
-        // Create the false structure
-        BooleanStructure falseStruct = this.newInstance();
-        falseStruct.negate();
-
         // Iterate over every new variable
         /**
          * @updates this, ~newVars
@@ -548,35 +1344,193 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
             BooleanStructure xStruct = this.newInstance();
             xStruct.setFromInt(x);
 
-            // x and False
-            xStruct.conj(falseStruct);
+            // if x then this else this
+            Sequence<Integer> order = newOrder(this.vars(), xStruct.vars());
+            xStruct.ite(this, this, order);
+            this.transferFrom(xStruct);
+        }
+    }
+
+    @Override
+    public void exists(Set<Integer> vars) {
+        assert vars.isSubset(seqToSet(this.vars())) : "Violation of: "
+                + "vars is subset of VARIABLES(this)";
 
-            // this or (x and False)
-            this.disj(xStruct);
+        /**
+         * @updates this, ~vars
+         *
+         * @maintains <pre>
+         *      QUANTIFICATION(this, #this, entries(~vars.seen), true)
+         * </pre>
+         *
+         * @decreases |~vars.unseen|
+         */
+        for (int v : vars) {
+            Set<Integer> t = new Set4<Integer>();
+            t.add(v);
+            Set<Integer> f = t.newInstance();
+
+            // this[v := true] or this[v := false]
+            BooleanStructure hi = this.newInstance();
+            hi.copyFrom(this);
+            hi.restrict(t, f);
+            this.restrict(f, t);
+            this.disj(hi);
         }
     }
 
+    @Override
+    public void forall(Set<Integer> vars) {
+        assert vars.isSubset(seqToSet(this.vars())) : "Violation of: "
+                + "vars is subset of VARIABLES(this)";
+
+        // forall v. f = not exists v. not f
+        this.negate();
+        this.exists(vars);
+        this.negate();
+    }
+
+    @Override
+    public void andExists(BooleanStructure x, Set<Integer> vars) {
+        assert IS_COMPATIBLE_ORDERING(this.vars(), x.vars()) : "Violation of: "
+                + "IS_COMPATIBLE_ORDERING(this.vars, x.vars)";
+        assert vars.isSubset(union(seqToSet(this.vars()),
+                seqToSet(x.vars()))) : "Violation of: "
+                        + "vars is subset of VARIABLES(this) union VARIABLES(x)";
+
+        this.conj(x);
+        this.exists(vars);
+    }
+
+    @Override
+    public void constrain(BooleanStructure care) {
+        assert IS_COMPATIBLE_ORDERING(this.vars(), care.vars()) : ""
+                + "Violation of: IS_COMPATIBLE_ORDERING(this.vars, care.vars)";
+
+        Sequence<Integer> newOrder = newOrder(this.vars(), care.vars());
+        int[] order = new int[newOrder.length()];
+        int i = 0;
+        for (int v : newOrder) {
+            order[i] = v;
+            i++;
+        }
+
+        BooleanStructure result = generalizedCofactor(this, care, order, 0,
+                false);
+        alignToSuffix(result, order, 0);
+
+        this.transferFrom(result);
+    }
+
+    @Override
+    public void simplify(BooleanStructure care) {
+        assert IS_COMPATIBLE_ORDERING(this.vars(), care.vars()) : ""
+                + "Violation of: IS_COMPATIBLE_ORDERING(this.vars, care.vars)";
+
+        Sequence<Integer> newOrder = newOrder(this.vars(), care.vars());
+        int[] order = new int[newOrder.length()];
+        int i = 0;
+        for (int v : newOrder) {
+            order[i] = v;
+            i++;
+        }
+
+        BooleanStructure result = generalizedCofactor(this, care, order, 0,
+                true);
+        alignToSuffix(result, order, 0);
+
+        // The result does not depend on the variables only care has, so
+        // quantifying them out leaves this.vars in place
+        Set<Integer> careOnly = seqToSet(care.vars());
+        for (int v : this.vars()) {
+            if (careOnly.contains(v)) {
+                careOnly.remove(v);
+            }
+        }
+        result.exists(careOnly);
+
+        this.transferFrom(result);
+    }
+
+    @Override
+    public void compose(int var, BooleanStructure g) {
+        Map<Integer, BooleanStructure> map;
+        map = new HashMap<Integer, BooleanStructure>();
+        map.put(var, g);
+
+        this.composeAll(map);
+    }
+
+    @Override
+    public void composeAll(Map<Integer, BooleanStructure> map) {
+        Set<Integer> thisVars = seqToSet(this.vars());
+        int[] keys = new int[map.size()];
+        BooleanStructure[] subs = new BooleanStructure[map.size()];
+        int i = 0;
+        for (Map.Entry<Integer, BooleanStructure> e : map.entrySet()) {
+            assert thisVars.contains(e.getKey()) : ""
+                    + "Violation of: map.keySet() is subset of VARIABLES(this)";
+            keys[i] = e.getKey();
+            subs[i] = e.getValue();
+            i++;
+        }
+
+        Sequence<Integer> order = composedOrder(this.vars(), map);
+        BooleanStructure result = substitute(this, keys, subs, 0, order);
+
+        // Give the result exactly the variables the substitution leaves
+        dropSubstituted(order, map);
+        Set<Integer> resultVars = seqToSet(result.vars());
+        Set<Integer> missing = new Set4<Integer>();
+        for (int v : order) {
+            if (!resultVars.contains(v)) {
+                missing.add(v);
+            }
+        }
+        result.expand(missing);
+        result.reorder(order);
+
+        this.transferFrom(result);
+    }
+
     @Override
     public String toStringTT() {
         StringBuilder result = new StringBuilder();
+        try {
+            this.toStringTT(result);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw", e);
+        }
+
+        return result.toString();
+    }
+
+    @Override
+    public void toStringTT(Appendable out) throws IOException {
         Sequence<Integer> thisOrder = this.vars();
+        int[] order = new int[thisOrder.length()];
+        int next = 0;
+        for (int v : thisOrder) {
+            order[next] = v;
+            next++;
+        }
 
-        result.append(thisOrder);
+        out.append(thisOrder.toString());
 
-        int numRows = (int) Math.pow(2, thisOrder.length());
+        long numRows = 1L << order.length;
 
-        // Loop through all possible assignments for truth values to check
-        // if the two expressions are logically equivalent
+        // Loop through all possible assignments for truth values, writing
+        // each row as soon as it is evaluated
         Set<Integer> trueAssignments = new Set2<Integer>();
         /**
-         * @decreases |numRows| - i
+         * @decreases numRows - i
          */
-        for (int i = 0; i < numRows; i++) {
-            result.append(System.lineSeparator());
+        for (long i = 0; i < numRows; i++) {
+            out.append(System.lineSeparator());
 
             trueAssignments.clear();
 
-            long variableMask = 1 << thisOrder.length() - 1;
+            long variableMask = numRows >>> 1;
             /**
              * @updates trueAssignments, j
              *
@@ -586,25 +1540,89 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
              *
              * @decreases |thisOrder| - j
              */
-            for (int j = 0; j < thisOrder.length(); j++) {
-                int variable = thisOrder.entry(thisOrder.length() - 1 - j);
+            for (int j = 0; j < order.length; j++) {
+                int variable = order[order.length - 1 - j];
                 if ((i & variableMask) == 0) {
-                    result.append("T ");
+                    out.append("T ");
                     trueAssignments.add(variable);
                 } else {
-                    result.append("F ");
+                    out.append("F ");
                 }
                 variableMask = (variableMask >> 1);
             }
 
             if (this.evaluate(trueAssignments)) {
-                result.append("| T");
+                out.append("| T");
             } else {
-                result.append("| F");
+                out.append("| F");
             }
         }
+    }
 
-        return result.toString();
+    /**
+     * Appends to {@code cubes} the cubes of {@code s}, a cofactor of the
+     * structure whose variables are {@code order}, with the literals of
+     * {@code order[0, i)} already chosen in {@code literals}. The variables of
+     * {@code order[i, |order|)} are split in turn, except where both
+     * cofactors are equivalent, matching the paths of the reduced diagram.
+     *
+     * @param s
+     *            the cofactor
+     * @param order
+     *            the variables, in order
+     * @param i
+     *            the number of variables already chosen
+     * @param literals
+     *            the literal chosen for each variable, or null if it is not
+     *            tested
+     * @param cubes
+     *            the cubes found so far
+     * @updates cubes
+     * @requires <pre>
+     * 0 <= i <= |order| and
+     * VARIABLES(s) is subset of entries(order[i, |order|)) and
+     * IS_COMPATIBLE_ORDERING(s.vars, order)
+     * </pre>
+     */
+    private static void appendCubes(BooleanStructure s, int[] order, int i,
+            String[] literals, StringJoiner cubes) {
+        if (s.isValid()) {
+            StringJoiner cube = new StringJoiner(",", "{", "}");
+            for (int j = 0; j < i; j++) {
+                if (literals[j] != null) {
+                    cube.add(literals[j]);
+                }
+            }
+            cubes.add(cube.toString());
+        } else if (s.isSat()) {
+            BooleanStructure hi = cofactor(s, order[i], true);
+            BooleanStructure lo = cofactor(s, order[i], false);
+            if (hi.isEquivalent(lo)) {
+                appendCubes(hi, order, i + 1, literals, cubes);
+            } else {
+                literals[i] = String.valueOf(order[i]);
+                appendCubes(hi, order, i + 1, literals, cubes);
+                literals[i] = "~" + order[i];
+                appendCubes(lo, order, i + 1, literals, cubes);
+                literals[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public String toStringCubes() {
+        Sequence<Integer> thisOrder = this.vars();
+        int[] order = new int[thisOrder.length()];
+        int next = 0;
+        for (int v : thisOrder) {
+            order[next] = v;
+            next++;
+        }
+
+        StringJoiner cubes = new StringJoiner(",", "{", "}");
+        appendCubes(this, order, 0, new String[order.length], cubes);
+
+        return "( " + cubes.toString() + ", " + thisOrder.toString() + " )";
     }
 
     @Override
@@ -659,6 +1677,43 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
         return allTrue;
     }
 
+    @Override
+    public BigInteger satCount() {
+        long count = 0;
+
+        PowerStringElements allAssignments = new PowerStringElements(
+                this.vars());
+        /**
+         * @updates count, ~allAssignments
+         *
+         * @maintains count = | entries(~allAssignments.seen) intersection this.sat |
+         *
+         * @decreases |~allAssignments.unseen|
+         */
+        for (Set<Integer> a : allAssignments) {
+            if (this.evaluate(a)) {
+                count++;
+            }
+        }
+
+        return BigInteger.valueOf(count);
+    }
+
+    @Override
+    public double satCountLog2() {
+        BigInteger count = this.satCount();
+
+        double result = Double.NEGATIVE_INFINITY;
+        if (count.signum() > 0) {
+            // Keep the 63 most significant bits, which a double can hold
+            int shift = Math.max(0, count.bitLength() - 63);
+            result = shift + Math.log(count.shiftRight(shift).doubleValue())
+                    / Math.log(2);
+        }
+
+        return result;
+    }
+
     @Override
     public boolean isEquivalent(BooleanStructure x) {
         boolean result = true;
@@ -756,13 +1811,199 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
 
     @Override
     public void setFromTree(SyntaxTree st) {
-        BooleanStructure newExp = createFromTree(this, st);
+        this.setFromTree(st, ConjunctionSchedule.LINEAR);
+    }
+
+    @Override
+    public void setFromTree(SyntaxTree st, ConjunctionSchedule schedule) {
+        BooleanStructure newExp = createFromTree(this, st, schedule, null);
+
+        this.transferFrom(newExp);
+    }
+
+    @Override
+    public void setFromTree(SyntaxTree st, ConjunctionSchedule schedule,
+            OrderingHeuristic heuristic) {
+        VariableOrder order = StaticOrder.fromTree(st, heuristic);
+        BooleanStructure newExp = createFromTree(this, st, schedule, order);
 
         this.transferFrom(newExp);
     }
 
+    /**
+     * Creates the disjunction of the literals of {@code literals}. If
+     * {@code order} is not null, the clause follows it; otherwise its
+     * variables are in the order they were read.
+     *
+     * @param b
+     *            the structure used to create new instances
+     * @param literals
+     *            the literals, negative for negated variables
+     * @param order
+     *            the variable order to follow, or null
+     * @return the clause
+     * @updates literals
+     * @requires <pre>
+     * 0 is not in literals and
+     * if order /= null then [the variables of literals are in entries(order)]
+     * </pre>
+     */
+    private static BooleanStructure clause(BooleanStructure b, int[] literals,
+            VariableOrder order) {
+        if (order != null) {
+            // Sort the literals by rank, which is short work for a clause
+            for (int i = 1; i < literals.length; i++) {
+                int literal = literals[i];
+                int rank = order.rank(Math.abs(literal));
+                int j = i;
+                while (j > 0 && order.rank(Math.abs(literals[j - 1])) > rank) {
+                    literals[j] = literals[j - 1];
+                    j--;
+                }
+                literals[j] = literal;
+            }
+        }
+
+        BooleanStructure result = b.newInstance();
+        result.negate();
+        BooleanStructure literal = b.newInstance();
+        for (int l : literals) {
+            literal.setFromInt(Math.abs(l));
+            if (l < 0) {
+                literal.negate();
+            }
+            result.disj(literal);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the next clause of a formula in DIMACS CNF format from
+     * {@code input}, skipping comment and problem lines.
+     *
+     * @param input
+     *            the source of the formula
+     * @return the literals of the clause, negative for negated variables, or
+     *         null if there are no more clauses
+     * @throws IOException
+     *             if input cannot be read
+     * @updates input
+     */
+    private static int[] readClause(BufferedReader input) throws IOException {
+        int[] literals = new int[16];
+        int count = 0;
+        boolean open = false;
+        boolean closed = false;
+
+        int c = input.read();
+        while (!closed && c != -1 && c != '%') {
+            if (c == 'c' || c == 'p') {
+                // Skip comment and problem lines
+                while (c != -1 && c != '\n') {
+                    c = input.read();
+                }
+            } else if (c == '-' || Character.isDigit(c)) {
+                boolean negated = (c == '-');
+                if (negated) {
+                    c = input.read();
+                }
+                int v = 0;
+                while (c != -1 && Character.isDigit(c)) {
+                    v = 10 * v + (c - '0');
+                    c = input.read();
+                }
+                open = true;
+                if (v == 0) {
+                    closed = true;
+                } else {
+                    if (count == literals.length) {
+                        literals = Arrays.copyOf(literals, 2 * count);
+                    }
+                    literals[count] = v;
+                    if (negated) {
+                        literals[count] = -v;
+                    }
+                    count++;
+                }
+            } else {
+                c = input.read();
+            }
+        }
+        if (c == '%') {
+            // Nothing after the end marker is part of the formula
+            while (c != -1) {
+                c = input.read();
+            }
+        }
+
+        // Accept a last clause missing its terminating 0
+        int[] result = null;
+        if (open) {
+            result = Arrays.copyOf(literals, count);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void setFromCNF(Reader in) throws IOException {
+        this.setFromCNF(in, ConjunctionSchedule.LINEAR);
+    }
+
+    @Override
+    public void setFromCNF(Reader in, ConjunctionSchedule schedule)
+            throws IOException {
+        BufferedReader input = new BufferedReader(in);
+        Conjunction result = new Conjunction(this, schedule, null);
+
+        int[] literals = readClause(input);
+        while (literals != null) {
+            result.add(clause(this, literals, null));
+            literals = readClause(input);
+        }
+
+        this.transferFrom(result.result());
+    }
+
+    @Override
+    public void setFromCNF(Reader in, ConjunctionSchedule schedule,
+            OrderingHeuristic heuristic) throws IOException {
+        // The order depends on every clause, so read them all first
+        BufferedReader input = new BufferedReader(in);
+        int[][] clauses = new int[16][];
+        int count = 0;
+        int[] literals = readClause(input);
+        while (literals != null) {
+            if (count == clauses.length) {
+                clauses = Arrays.copyOf(clauses, 2 * count);
+            }
+            clauses[count] = literals;
+            count++;
+            literals = readClause(input);
+        }
+        clauses = Arrays.copyOf(clauses, count);
+
+        VariableOrder order = StaticOrder.fromClauses(clauses, heuristic);
+        Conjunction result = new Conjunction(this, schedule, order);
+        for (int i = 0; i < count; i++) {
+            result.add(clause(this, clauses[i], order));
+            clauses[i] = null;
+        }
+
+        this.transferFrom(result.result());
+    }
+
     @Override
     public Set<Integer> satAssignment() {
+        Set<Integer> a = new Set4<Integer>();
+        this.satAssignment(a);
+
+        return a;
+    }
+
+    @Override
+    public void satAssignment(Set<Integer> result) {
         // Loop through all possible assignments for truth values to find a
         // satisfying assignment
 
@@ -785,21 +2026,19 @@ public abstract class BooleanStructureSecondary implements BooleanStructure {
             found = this.evaluate(a);
         }
 
-        // Return a copy of the assignment to avoid aliasing
-        Set<Integer> aCopy = a.newInstance();
+        // Copy the assignment into result to avoid aliasing
+        result.clear();
         /**
-         * @updates aCopy, a
+         * @updates result, a
          *
-         * @maintains aCopy = entries(~a.seen)
+         * @maintains result = entries(~a.seen)
          *
          * @decreases |~a.unseen|
          */
         for (int el : a) {
-            aCopy.add(el);
+            result.add(el);
         }
 
-        return aCopy;
-
     }
 
 }
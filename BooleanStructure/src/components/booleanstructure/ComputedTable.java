@@ -0,0 +1,271 @@
+package components.booleanstructure;
+
+/**
+ * Fixed-capacity cache of operation results, keyed by an operator code and up
+ * to three operand references (the "computed table" of a BDD package). The
+ * table is direct-mapped: each key hashes to exactly one slot, and inserting a
+ * key whose slot is occupied evicts the previous entry. Memory is therefore
+ * bounded by the capacity chosen at construction, and a lookup may miss for a
+ * key that was inserted earlier.
+ *
+ * @mathmodel type ComputedTable is modeled by finite set of (op: integer, f:
+ *            integer, g: integer, h: integer, result: integer)
+ * @convention <pre>
+ * |$this.ops| = |$this.fs| = |$this.gs| = |$this.hs| = |$this.results| and
+ * |$this.ops| is a power of 2 and
+ * $this.mask = |$this.ops| - 1
+ * </pre>
+ */
+final class ComputedTable {
+
+    /**
+     * Value returned by {@code lookup} when the key is not in the table.
+     */
+    static final int MISSING = -1;
+
+    /**
+     * Smallest number of slots allocated.
+     */
+    private static final int MIN_CAPACITY = 1 << 8;
+
+    /**
+     * Largest number of slots allocated.
+     */
+    private static final int MAX_CAPACITY = 1 << 20;
+
+    /**
+     * Operator code of each slot; MISSING marks an empty slot.
+     */
+    private int[] ops;
+
+    /**
+     * First operand of each slot.
+     */
+    private int[] fs;
+
+    /**
+     * Second operand of each slot.
+     */
+    private int[] gs;
+
+    /**
+     * Third operand of each slot; 0 for binary operations.
+     */
+    private int[] hs;
+
+    /**
+     * Cached result of each slot.
+     */
+    private int[] results;
+
+    /**
+     * Mask used to reduce a hash to a slot index.
+     */
+    private int mask;
+
+    /**
+     * Number of lookups that found their key.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that did not find their key.
+     */
+    private long misses;
+
+    /**
+     * Constructor from the expected number of distinct keys.
+     *
+     * @param expected
+     *            the number of distinct keys the table is expected to hold
+     * @ensures <pre>
+     * this = {} and
+     * MIN_CAPACITY <= |$this.ops| <= MAX_CAPACITY
+     * </pre>
+     */
+    ComputedTable(long expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected && capacity < MAX_CAPACITY) {
+            capacity = capacity << 1;
+        }
+
+        this.ops = new int[capacity];
+        this.fs = new int[capacity];
+        this.gs = new int[capacity];
+        this.hs = new int[capacity];
+        this.results = new int[capacity];
+        this.mask = capacity - 1;
+        this.clear();
+    }
+
+    /**
+     * Computes the slot of the key ({@code op}, {@code f}, {@code g},
+     * {@code h}).
+     *
+     * @param op
+     *            the operator code
+     * @param f
+     *            the first operand
+     * @param g
+     *            the second operand
+     * @param h
+     *            the third operand
+     * @return the slot index of the key
+     * @ensures 0 <= slot <= $this.mask
+     */
+    private int slot(int op, int f, int g, int h) {
+        int x = op;
+        x = 31 * x + f;
+        x = 31 * x + g;
+        x = 0x9E3779B9 * (31 * x + h);
+        return (x ^ (x >>> 16)) & this.mask;
+    }
+
+    /**
+     * Reports the result cached for ({@code op}, {@code f}, {@code g}), if
+     * any.
+     *
+     * @param op
+     *            the operator code
+     * @param f
+     *            the first operand
+     * @param g
+     *            the second operand
+     * @return the cached result, or MISSING
+     * @requires op >= 0
+     * @ensures <pre>
+     * if (op, f, g, 0, r) is in this for some r
+     *   then lookup = r or lookup = MISSING
+     *   else lookup = MISSING
+     * </pre>
+     */
+    int lookup(int op, int f, int g) {
+        return this.lookup(op, f, g, 0);
+    }
+
+    /**
+     * Reports the result cached for ({@code op}, {@code f}, {@code g},
+     * {@code h}), if any.
+     *
+     * @param op
+     *            the operator code
+     * @param f
+     *            the first operand
+     * @param g
+     *            the second operand
+     * @param h
+     *            the third operand
+     * @return the cached result, or MISSING
+     * @requires op >= 0
+     * @ensures <pre>
+     * if (op, f, g, h, r) is in this for some r
+     *   then lookup = r or lookup = MISSING
+     *   else lookup = MISSING
+     * </pre>
+     */
+    int lookup(int op, int f, int g, int h) {
+        assert op >= 0 : "Violation of: op >= 0";
+
+        int i = this.slot(op, f, g, h);
+        int result = MISSING;
+        if (this.ops[i] == op && this.fs[i] == f && this.gs[i] == g
+                && this.hs[i] == h) {
+            result = this.results[i];
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Records {@code result} for ({@code op}, {@code f}, {@code g}), evicting
+     * whatever entry previously occupied the same slot.
+     *
+     * @param op
+     *            the operator code
+     * @param f
+     *            the first operand
+     * @param g
+     *            the second operand
+     * @param result
+     *            the result to cache
+     * @updates this
+     * @requires op >= 0 and result /= MISSING
+     * @ensures (op, f, g, 0, result) is in this
+     */
+    void insert(int op, int f, int g, int result) {
+        this.insert(op, f, g, 0, result);
+    }
+
+    /**
+     * Records {@code result} for ({@code op}, {@code f}, {@code g},
+     * {@code h}), evicting whatever entry previously occupied the same slot.
+     *
+     * @param op
+     *            the operator code
+     * @param f
+     *            the first operand
+     * @param g
+     *            the second operand
+     * @param h
+     *            the third operand
+     * @param result
+     *            the result to cache
+     * @updates this
+     * @requires op >= 0 and result /= MISSING
+     * @ensures (op, f, g, h, result) is in this
+     */
+    void insert(int op, int f, int g, int h, int result) {
+        assert op >= 0 : "Violation of: op >= 0";
+        assert result != MISSING : "Violation of: result /= MISSING";
+
+        int i = this.slot(op, f, g, h);
+        this.ops[i] = op;
+        this.fs[i] = f;
+        this.gs[i] = g;
+        this.hs[i] = h;
+        this.results[i] = result;
+    }
+
+    /**
+     * Removes every entry from {@code this}.
+     *
+     * @clears this
+     */
+    void clear() {
+        for (int i = 0; i < this.ops.length; i++) {
+            this.ops[i] = MISSING;
+        }
+    }
+
+    /**
+     * Reports the number of slots in {@code this}.
+     *
+     * @return the capacity of the table
+     * @ensures capacity = |$this.ops|
+     */
+    int capacity() {
+        return this.ops.length;
+    }
+
+    /**
+     * Reports the number of lookups that found their key.
+     *
+     * @return the number of cache hits
+     */
+    long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Reports the number of lookups that did not find their key.
+     *
+     * @return the number of cache misses
+     */
+    long misses() {
+        return this.misses;
+    }
+
+}
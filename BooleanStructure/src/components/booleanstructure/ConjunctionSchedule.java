@@ -0,0 +1,12 @@
+package components.booleanstructure;
+
+/**
+ * Enum to represent the order in which a structure built from many conjuncts
+ * conjoins them: {@code LINEAR} folds them left to right into one
+ * accumulator, {@code BALANCED} conjoins them pairwise as the leaves of a
+ * balanced tree, and {@code SMALLEST_FIRST} repeatedly conjoins the two
+ * smallest partial results.
+ */
+public enum ConjunctionSchedule {
+    LINEAR, BALANCED, SMALLEST_FIRST
+}
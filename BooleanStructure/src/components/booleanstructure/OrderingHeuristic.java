@@ -0,0 +1,13 @@
+package components.booleanstructure;
+
+/**
+ * Enum to represent the static variable-ordering heuristics of
+ * {@code StaticOrder}: {@code DFS_FANIN} orders variables as a depth-first
+ * traversal reaches them, larger subformulas first; {@code FORCE} moves each
+ * variable towards the centers of gravity of its clauses; {@code MINCE}
+ * recursively bisects the clause hypergraph, cutting as few clauses as it
+ * can.
+ */
+public enum OrderingHeuristic {
+    DFS_FANIN, FORCE, MINCE
+}
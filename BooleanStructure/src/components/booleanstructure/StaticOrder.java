@@ -0,0 +1,542 @@
+package components.booleanstructure;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import components.sequence.Sequence;
+import components.sequence.Sequence1L;
+
+/**
+ * Static variable-ordering heuristics, computed from a formula before any
+ * structure is built. A formula is seen as a hypergraph whose vertices are
+ * its variables and whose hyperedges are its clauses; for a
+ * {@code SyntaxTree}, the hyperedges are the conjuncts of its top chain of
+ * "and" nodes, which are the clauses of a tree read from DIMACS CNF.
+ */
+public final class StaticOrder {
+
+    /**
+     * Largest number of FORCE iterations; FORCE also stops as soon as an
+     * iteration does not shorten the total span of the hyperedges.
+     */
+    private static final int FORCE_ITERATIONS = 32;
+
+    /**
+     * Parts of at most this many variables are not bisected by MINCE.
+     */
+    private static final int MINCE_LEAF_SIZE = 2;
+
+    /**
+     * Largest number of refinement passes of each MINCE bisection.
+     */
+    private static final int MINCE_PASSES = 4;
+
+    /**
+     * Hypergraph of a formula, with its variables numbered densely in the
+     * order they first appear.
+     */
+    private static final class Hypergraph {
+
+        /**
+         * The variable of each vertex.
+         */
+        private final int[] variables;
+
+        /**
+         * The vertices of each hyperedge, without repetitions.
+         */
+        private final int[][] edges;
+
+        /**
+         * The hyperedges containing each vertex.
+         */
+        private final int[][] incidence;
+
+        /**
+         * Constructor from clauses.
+         *
+         * @param clauses
+         *            the clauses, as literals negative for negated variables
+         */
+        Hypergraph(int[][] clauses) {
+            HashMap<Integer, Integer> vertexOf;
+            vertexOf = new HashMap<Integer, Integer>();
+            int[] variables = new int[16];
+            int[] degree = new int[16];
+            this.edges = new int[clauses.length][];
+            for (int e = 0; e < clauses.length; e++) {
+                int[] edge = new int[clauses[e].length];
+                int size = 0;
+                for (int literal : clauses[e]) {
+                    int v = Math.abs(literal);
+                    Integer vertex = vertexOf.get(v);
+                    if (vertex == null) {
+                        vertex = vertexOf.size();
+                        vertexOf.put(v, vertex);
+                        if (vertex == variables.length) {
+                            variables = Arrays.copyOf(variables, 2 * vertex);
+                            degree = Arrays.copyOf(degree, 2 * vertex);
+                        }
+                        variables[vertex] = v;
+                    }
+                    // Keep each variable once, however many literals it has
+                    boolean repeated = false;
+                    for (int i = 0; i < size; i++) {
+                        repeated = repeated || edge[i] == vertex;
+                    }
+                    if (!repeated) {
+                        edge[size] = vertex;
+                        size++;
+                        degree[vertex]++;
+                    }
+                }
+                this.edges[e] = Arrays.copyOf(edge, size);
+            }
+            this.variables = Arrays.copyOf(variables, vertexOf.size());
+
+            this.incidence = new int[this.variables.length][];
+            for (int v = 0; v < this.variables.length; v++) {
+                this.incidence[v] = new int[degree[v]];
+                degree[v] = 0;
+            }
+            for (int e = 0; e < this.edges.length; e++) {
+                for (int v : this.edges[e]) {
+                    this.incidence[v][degree[v]] = e;
+                    degree[v]++;
+                }
+            }
+        }
+
+        /**
+         * Reports the total span of the hyperedges under {@code position}.
+         *
+         * @param position
+         *            the position of each vertex
+         * @return the sum over the hyperedges of the distance between their
+         *         first and last vertices
+         */
+        long span(int[] position) {
+            long result = 0;
+            for (int[] edge : this.edges) {
+                int first = Integer.MAX_VALUE;
+                int last = Integer.MIN_VALUE;
+                for (int v : edge) {
+                    first = Math.min(first, position[v]);
+                    last = Math.max(last, position[v]);
+                }
+                if (edge.length > 0) {
+                    result += last - first;
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the variables of the vertices of {@code order}, in order.
+         *
+         * @param order
+         *            the vertices, in order
+         * @return the variable order
+         */
+        VariableOrder toOrder(int[] order) {
+            Sequence<Integer> result = new Sequence1L<Integer>();
+            for (int v : order) {
+                result.add(result.length(), this.variables[v]);
+            }
+
+            return new VariableOrder(result);
+        }
+
+    }
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private StaticOrder() {
+    }
+
+    /**
+     * Orders the vertices of {@code g} by a depth-first traversal of its
+     * incidence graph, which starts at a vertex of largest degree and goes
+     * on from each vertex to the unvisited vertices of its hyperedges,
+     * largest degree first.
+     *
+     * @param g
+     *            the hypergraph
+     * @return the vertices, in order
+     */
+    private static int[] dfsFanIn(Hypergraph g) {
+        final int[][] incidence = g.incidence;
+        int n = g.variables.length;
+        Integer[] byDegree = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            byDegree[v] = v;
+        }
+        // Sorts are stable, so ties keep the order of first appearance
+        Comparator<Integer> larger = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer v, Integer w) {
+                return Integer.compare(incidence[w].length,
+                        incidence[v].length);
+            }
+        };
+        Arrays.sort(byDegree, larger);
+
+        int[] order = new int[n];
+        int placed = 0;
+        boolean[] visited = new boolean[n];
+        int[] foundBy = new int[n];
+        Arrays.fill(foundBy, -1);
+        Integer[] next = new Integer[n];
+        ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+        for (int start : byDegree) {
+            if (!visited[start]) {
+                pending.push(start);
+            }
+            while (!pending.isEmpty()) {
+                int v = pending.pop();
+                if (!visited[v]) {
+                    visited[v] = true;
+                    order[placed] = v;
+                    placed++;
+
+                    // Push the neighbours smallest first, so the largest is
+                    // visited first
+                    int count = 0;
+                    for (int e : incidence[v]) {
+                        for (int w : g.edges[e]) {
+                            if (!visited[w] && foundBy[w] != v) {
+                                foundBy[w] = v;
+                                next[count] = w;
+                                count++;
+                            }
+                        }
+                    }
+                    Arrays.sort(next, 0, count, larger);
+                    for (int i = count - 1; i >= 0; i--) {
+                        pending.push(next[i]);
+                    }
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Improves the order {@code initial} of the vertices of {@code g} by the
+     * FORCE heuristic: each hyperedge is given the mean position of its
+     * vertices as its center of gravity, each vertex is moved to the mean of
+     * the centers of its hyperedges, and the vertices are sorted by their new
+     * positions, for as long as this shortens the total span.
+     *
+     * @param g
+     *            the hypergraph
+     * @param initial
+     *            the vertices, in the initial order
+     * @return the vertices, in the order of least total span found
+     */
+    private static int[] force(Hypergraph g, int[] initial) {
+        int n = g.variables.length;
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[initial[i]] = i;
+        }
+        int[] best = initial.clone();
+        long bestSpan = g.span(position);
+
+        final double[] target = new double[n];
+        final int[] current = position;
+        Comparator<Integer> byTarget = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer v, Integer w) {
+                int result = Double.compare(target[v], target[w]);
+                if (result == 0) {
+                    result = Integer.compare(current[v], current[w]);
+                }
+                return result;
+            }
+        };
+        double[] gravity = new double[g.edges.length];
+        Integer[] order = new Integer[n];
+        boolean improved = true;
+        for (int k = 0; k < FORCE_ITERATIONS && improved; k++) {
+            for (int e = 0; e < g.edges.length; e++) {
+                double sum = 0;
+                for (int v : g.edges[e]) {
+                    sum += position[v];
+                }
+                gravity[e] = sum / Math.max(1, g.edges[e].length);
+            }
+            for (int v = 0; v < n; v++) {
+                target[v] = position[v];
+                if (g.incidence[v].length > 0) {
+                    double sum = 0;
+                    for (int e : g.incidence[v]) {
+                        sum += gravity[e];
+                    }
+                    target[v] = sum / g.incidence[v].length;
+                }
+                order[v] = v;
+            }
+            Arrays.sort(order, byTarget);
+            for (int i = 0; i < n; i++) {
+                position[order[i]] = i;
+            }
+
+            long span = g.span(position);
+            improved = span < bestSpan;
+            if (improved) {
+                bestSpan = span;
+                for (int i = 0; i < n; i++) {
+                    best[i] = order[i];
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Reorders {@code order[from, to)} by recursive bisection, in the style
+     * of MINCE: each part is split in two halves of the current order, the
+     * split is refined by moving single vertices across it while that cuts
+     * fewer hyperedges and keeps the halves balanced, and the first half is
+     * placed before the second.
+     *
+     * @param g
+     *            the hypergraph
+     * @param order
+     *            the vertices, in order
+     * @param from
+     *            the start of the part
+     * @param to
+     *            the end of the part
+     * @param side
+     *            scratch space, 0 or 1 for the vertices of the part
+     * @param count
+     *            scratch space, the vertices of each hyperedge on each side
+     * @updates order, side, count
+     */
+    private static void bisect(Hypergraph g, int[] order, int from, int to,
+            int[] side, int[][] count) {
+        int length = to - from;
+        if (length > MINCE_LEAF_SIZE) {
+            int[] sizes = { length / 2, length - length / 2 };
+            int slack = Math.max(1, length / 10);
+            for (int i = from; i < to; i++) {
+                side[order[i]] = 0;
+                if (i - from >= sizes[0]) {
+                    side[order[i]] = 1;
+                }
+            }
+            // Count, for the hyperedges of the part, its vertices per side
+            for (int i = from; i < to; i++) {
+                for (int e : g.incidence[order[i]]) {
+                    count[e][0] = 0;
+                    count[e][1] = 0;
+                }
+            }
+            for (int i = from; i < to; i++) {
+                for (int e : g.incidence[order[i]]) {
+                    count[e][side[order[i]]]++;
+                }
+            }
+
+            boolean moved = true;
+            for (int pass = 0; pass < MINCE_PASSES && moved; pass++) {
+                moved = false;
+                for (int i = from; i < to; i++) {
+                    int v = order[i];
+                    int s = side[v];
+                    int t = 1 - s;
+                    int gain = 0;
+                    for (int e : g.incidence[v]) {
+                        boolean wasCut = count[e][0] > 0 && count[e][1] > 0;
+                        boolean isCut = count[e][s] > 1;
+                        if (wasCut && !isCut) {
+                            gain++;
+                        } else if (!wasCut && isCut) {
+                            gain--;
+                        }
+                    }
+                    if (gain > 0 && sizes[s] - 1 >= length / 2 - slack
+                            && sizes[s] > 1) {
+                        side[v] = t;
+                        sizes[s]--;
+                        sizes[t]++;
+                        for (int e : g.incidence[v]) {
+                            count[e][s]--;
+                            count[e][t]++;
+                        }
+                        moved = true;
+                    }
+                }
+            }
+
+            // Place the first half before the second, keeping the order
+            // within each half
+            int[] part = Arrays.copyOfRange(order, from, to);
+            int next = from;
+            for (int s = 0; s < 2; s++) {
+                for (int v : part) {
+                    if (side[v] == s) {
+                        order[next] = v;
+                        next++;
+                    }
+                }
+            }
+            bisect(g, order, from, from + sizes[0], side, count);
+            bisect(g, order, from + sizes[0], to, side, count);
+        }
+    }
+
+    /**
+     * Orders the vertices of {@code g} by the heuristic {@code heuristic},
+     * starting from their order of first appearance.
+     *
+     * @param g
+     *            the hypergraph
+     * @param heuristic
+     *            the heuristic
+     * @return the vertices, in order
+     */
+    private static int[] order(Hypergraph g, OrderingHeuristic heuristic) {
+        int n = g.variables.length;
+        int[] result = new int[n];
+        for (int v = 0; v < n; v++) {
+            result[v] = v;
+        }
+        if (heuristic == OrderingHeuristic.DFS_FANIN) {
+            result = dfsFanIn(g);
+        } else if (heuristic == OrderingHeuristic.FORCE) {
+            result = force(g, result);
+        } else {
+            // Seed the bisections with the FORCE order, as MINCE does
+            result = force(g, result);
+            bisect(g, result, 0, n, new int[n], new int[g.edges.length][2]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes a variable order for the formula whose clauses are
+     * {@code clauses} by the heuristic {@code heuristic}.
+     *
+     * @param clauses
+     *            the clauses, as literals negative for negated variables
+     * @param heuristic
+     *            the heuristic
+     * @return the order
+     * @requires 0 is not in any clause of clauses
+     * @ensures entries(fromClauses) = [the variables of clauses]
+     */
+    public static VariableOrder fromClauses(int[][] clauses,
+            OrderingHeuristic heuristic) {
+        Hypergraph g = new Hypergraph(clauses);
+
+        return g.toOrder(order(g, heuristic));
+    }
+
+    /**
+     * Computes a variable order for the formula of {@code st} by the
+     * heuristic {@code heuristic}. {@code DFS_FANIN} traverses the tree
+     * itself, visiting the larger operand of each operator first; the other
+     * heuristics work on the hypergraph of the conjuncts of its top chain of
+     * "and" nodes.
+     *
+     * @param st
+     *            the syntax tree
+     * @param heuristic
+     *            the heuristic
+     * @return the order
+     * @ensures entries(fromTree) = [the variables of st]
+     */
+    public static VariableOrder fromTree(SyntaxTree st,
+            OrderingHeuristic heuristic) {
+        VariableOrder result;
+        ArrayDeque<SyntaxTree> pending = new ArrayDeque<SyntaxTree>();
+        if (heuristic == OrderingHeuristic.DFS_FANIN) {
+            Sequence<Integer> order = new Sequence1L<Integer>();
+            HashMap<Integer, Integer> seen = new HashMap<Integer, Integer>();
+            pending.push(st);
+            while (!pending.isEmpty()) {
+                SyntaxTree current = pending.pop();
+                if (current.right() == null) {
+                    String label = current.label();
+                    if (!label.equals("T") && !label.equals("F")) {
+                        int v = Integer.parseInt(label);
+                        if (!seen.containsKey(v)) {
+                            seen.put(v, order.length());
+                            order.add(order.length(), v);
+                        }
+                    }
+                } else if (current.left() == null) {
+                    pending.push(current.right());
+                } else if (current.left().size() >= current.right().size()) {
+                    pending.push(current.right());
+                    pending.push(current.left());
+                } else {
+                    pending.push(current.left());
+                    pending.push(current.right());
+                }
+            }
+            result = new VariableOrder(order);
+        } else {
+            // Split the top chain of "and" nodes into its conjuncts
+            ArrayDeque<SyntaxTree> conjuncts = new ArrayDeque<SyntaxTree>();
+            pending.push(st);
+            while (!pending.isEmpty()) {
+                SyntaxTree current = pending.pop();
+                if (current.label().equals("and")) {
+                    pending.push(current.right());
+                    pending.push(current.left());
+                } else {
+                    conjuncts.addLast(current);
+                }
+            }
+
+            // Visit each shared node of a conjunct once, in tree order
+            int[][] clauses = new int[conjuncts.size()][];
+            int e = 0;
+            int[] clause = new int[16];
+            for (SyntaxTree conjunct : conjuncts) {
+                IdentityHashMap<SyntaxTree, Boolean> seen;
+                seen = new IdentityHashMap<SyntaxTree, Boolean>();
+                int size = 0;
+                pending.push(conjunct);
+                while (!pending.isEmpty()) {
+                    SyntaxTree current = pending.pop();
+                    if (seen.put(current, true) != null) {
+                        // Its variables are already in the clause
+                    } else if (current.right() == null) {
+                        String label = current.label();
+                        if (!label.equals("T") && !label.equals("F")) {
+                            if (size == clause.length) {
+                                clause = Arrays.copyOf(clause, 2 * size);
+                            }
+                            clause[size] = Integer.parseInt(label);
+                            size++;
+                        }
+                    } else {
+                        pending.push(current.right());
+                        if (current.left() != null) {
+                            pending.push(current.left());
+                        }
+                    }
+                }
+                clauses[e] = Arrays.copyOf(clause, size);
+                e++;
+            }
+            result = fromClauses(clauses, heuristic);
+        }
+
+        return result;
+    }
+
+}
@@ -1,5 +1,9 @@
 package components.booleanstructure;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
 import components.simplereader.SimpleReader;
 import components.stack.Stack;
 import components.stack.Stack2;
@@ -7,7 +11,9 @@ import components.stack.Stack2;
 /**
  * Utility class used to represent Boolean formulas in Reverse Polish Notation.
  * Used to easily construct {@code BooleanStructure}s representing complex
- * Boolean formulas.
+ * Boolean formulas. The parsers hash-cons the nodes they create, so the
+ * children of a tree form a DAG in which equal subformulas are the same
+ * node, and {@code setFromTree} builds each of them once.
  */
 public class SyntaxTree {
 
@@ -15,10 +21,67 @@ public class SyntaxTree {
      * conventions: <pre>
      * [ operators are "and", "or", "not",
      *   leaves are integers,
-     *   "not" has one child, which is this.right ]
+     *   "not" has one child, which is this.right,
+     *   equal subtrees below a root built by one parse are the same node,
+     *   size is the number of nodes of the tree, counting each shared node
+     *   once per occurrence, or Integer.MAX_VALUE if that is larger ]
      * </pre>
      */
 
+    /**
+     * Key of a node in the unique table of a parse. Children are compared by
+     * identity, which is enough because they were interned first.
+     */
+    private static final class Key {
+
+        /**
+         * The label of the node.
+         */
+        private final String label;
+
+        /**
+         * The left child of the node.
+         */
+        private final SyntaxTree left;
+
+        /**
+         * The right child of the node.
+         */
+        private final SyntaxTree right;
+
+        /**
+         * Constructor from the fields of a node.
+         *
+         * @param node
+         *            the node
+         */
+        Key(SyntaxTree node) {
+            this.label = node.label;
+            this.left = node.left;
+            this.right = node.right;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            boolean result = (obj == this);
+            if (!result && obj instanceof Key) {
+                Key other = (Key) obj;
+                result = this.label.equals(other.label)
+                        && this.left == other.left && this.right == other.right;
+            }
+
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.label.hashCode()
+                    + System.identityHashCode(this.left))
+                    + System.identityHashCode(this.right);
+        }
+
+    }
+
     /**
      * Node label
      */
@@ -35,7 +98,7 @@ public class SyntaxTree {
     private SyntaxTree right;
 
     /**
-     * Number of nodes in tree
+     * Number of nodes in tree, saturated at Integer.MAX_VALUE
      */
     private int size;
 
@@ -107,12 +170,38 @@ public class SyntaxTree {
     }
 
     /**
-     * Returns the size of the SyntaxTree
+     * Returns the size of the SyntaxTree, counting each shared node once per
+     * occurrence, or Integer.MAX_VALUE if that is larger. A tree with shared
+     * nodes can be exponentially larger than its DAG; see {@code dagSize}.
      */
     public int size() {
         return this.size;
     }
 
+    /**
+     * Returns the number of distinct nodes of the SyntaxTree, counting each
+     * shared node once
+     */
+    public int dagSize() {
+        IdentityHashMap<SyntaxTree, Boolean> seen;
+        seen = new IdentityHashMap<SyntaxTree, Boolean>();
+        ArrayDeque<SyntaxTree> pending = new ArrayDeque<SyntaxTree>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            SyntaxTree current = pending.pop();
+            if (seen.put(current, true) == null) {
+                if (current.left != null) {
+                    pending.push(current.left);
+                }
+                if (current.right != null) {
+                    pending.push(current.right);
+                }
+            }
+        }
+
+        return seen.size();
+    }
+
     /**
      * Returns String Infix representation of the formula
      */
@@ -134,6 +223,20 @@ public class SyntaxTree {
         return result.toString();
     }
 
+    /**
+     * Returns the sum of two sizes, saturated at Integer.MAX_VALUE
+     *
+     * @param x
+     *            - the first size
+     * @param y
+     *            - the second size
+     * @return min(x + y, Integer.MAX_VALUE)
+     * @requires x >= 0 and y >= 0
+     */
+    private static int plus(int x, int y) {
+        return (int) Math.min((long) x + y, Integer.MAX_VALUE);
+    }
+
     /**
      * Check whether a node has a logical operator as its label
      *
@@ -151,6 +254,28 @@ public class SyntaxTree {
         return isOp;
     }
 
+    /**
+     * Returns the node of {@code table} equal to {@code node}, adding
+     * {@code node} if there is none
+     *
+     * @param table
+     *            - the nodes created so far by a parse
+     * @param node
+     *            - a node whose children are in table
+     * @return the node of table equal to node
+     */
+    private static SyntaxTree intern(HashMap<Key, SyntaxTree> table,
+            SyntaxTree node) {
+        Key key = new Key(node);
+        SyntaxTree result = table.get(key);
+        if (result == null) {
+            table.put(key, node);
+            result = node;
+        }
+
+        return result;
+    }
+
     /**
      * Parses string representing a formula in RPN into a tree structure
      *
@@ -163,6 +288,7 @@ public class SyntaxTree {
      */
     private static SyntaxTree parseIntoTree(String formula) {
         String[] literals = formula.split(" ");
+        HashMap<Key, SyntaxTree> table = new HashMap<Key, SyntaxTree>();
 
         Stack<SyntaxTree> RPNStack = new Stack2<SyntaxTree>();
         for (int i = 0; i < literals.length; i++) {
@@ -173,17 +299,17 @@ public class SyntaxTree {
             if (isOp(current)) {
                 SyntaxTree right = RPNStack.pop();
                 current.right = right;
-                current.size += right.size;
+                current.size = plus(current.size, right.size);
 
                 if (!current.label.equals("not")) {
                     SyntaxTree left = RPNStack.pop();
                     current.left = left;
-                    current.size += left.size;
+                    current.size = plus(current.size, left.size);
                 }
 
             }
 
-            RPNStack.push(current);
+            RPNStack.push(intern(table, current));
 
         }
 
@@ -202,50 +328,57 @@ public class SyntaxTree {
         String[] declaration = first.split(" ");
         int clauseCount = Integer.valueOf(declaration[3]);
         assert (clauseCount >= 1);
+        HashMap<Key, SyntaxTree> table = new HashMap<Key, SyntaxTree>();
 
-        SyntaxTree current = formConjunct(in);
+        SyntaxTree current = formConjunct(in, table);
         int count = 1;
         while (count < clauseCount) {
             SyntaxTree oldRoot = current;
             current = new SyntaxTree();
             current.label = "and";
             current.left = oldRoot;
-            current.right = formConjunct(in);
-            current.size = current.left.size + current.right.size + 1;
+            current.right = formConjunct(in, table);
+            current.size = plus(plus(current.left.size, current.right.size),
+                    1);
+            current = intern(table, current);
             count++;
         }
 
         return current;
     }
 
-    private static SyntaxTree formConjunct(SimpleReader in) {
+    private static SyntaxTree formConjunct(SimpleReader in,
+            HashMap<Key, SyntaxTree> table) {
         String conjunct = in.nextLine();
         String[] variables = conjunct.split(" ");
-        SyntaxTree current = formTerm(variables[0]);
+        SyntaxTree current = formTerm(variables[0], table);
         for (int i = 1; i < variables.length - 1; i++) {
             SyntaxTree oldRoot = current;
             current = new SyntaxTree();
             current.label = "or";
             current.left = oldRoot;
-            current.right = formTerm(variables[i]);
-            current.size = current.left.size + current.right.size + 1;
+            current.right = formTerm(variables[i], table);
+            current.size = plus(plus(current.left.size, current.right.size),
+                    1);
+            current = intern(table, current);
         }
         return current;
     }
 
-    private static SyntaxTree formTerm(String var) {
+    private static SyntaxTree formTerm(String var,
+            HashMap<Key, SyntaxTree> table) {
         SyntaxTree result = new SyntaxTree();
         result.label = var;
         result.size = 1;
         if (var.charAt(0) == '-') {
             result.label = var.substring(1);
-            SyntaxTree leaf = result;
+            SyntaxTree leaf = intern(table, result);
             result = new SyntaxTree();
             result.label = "not";
             result.right = leaf;
             result.size = 2;
         }
-        return result;
+        return intern(table, result);
     }
 
 }
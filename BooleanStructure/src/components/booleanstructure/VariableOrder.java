@@ -0,0 +1,283 @@
+package components.booleanstructure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.sequence.Sequence;
+import components.sequence.Sequence1L;
+
+/**
+ * Immutable snapshot of a variable order, indexed both by position and by
+ * variable, so that ranks, compatibility checks and merges take time linear
+ * in the lengths of the orders involved. A snapshot does not follow later
+ * changes to the sequence it was taken from, so implementations may cache
+ * one for as long as their own order is unchanged.
+ *
+ * @mathmodel type VariableOrder is modeled by string of integer
+ * @convention <pre>
+ * | $this.order | = | $this.ranks | and
+ * for all i: integer where (0 <= i < | $this.order |)
+ *   ( $this.ranks.get($this.order[i]) = i )
+ * </pre>
+ * @correspondence this = $this.order
+ */
+public final class VariableOrder {
+
+    /**
+     * Variables, by position.
+     */
+    private final int[] order;
+
+    /**
+     * Position of each variable.
+     */
+    private final HashMap<Integer, Integer> ranks;
+
+    /**
+     * Hash of {@code order}, or 0 if not computed yet.
+     */
+    private int hash;
+
+    /**
+     * Constructor from the positions and ranks of an order.
+     *
+     * @param order
+     *            the variables, by position
+     * @param ranks
+     *            the position of each variable
+     */
+    private VariableOrder(int[] order, HashMap<Integer, Integer> ranks) {
+        this.order = order;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Constructor from {@code Sequence<Integer>}.
+     *
+     * @param vars
+     *            the order
+     * @requires | vars | = | entries(vars) |
+     * @ensures this = vars
+     */
+    public VariableOrder(Sequence<Integer> vars) {
+        this.order = new int[vars.length()];
+        this.ranks = new HashMap<Integer, Integer>();
+        for (int v : vars) {
+            assert !this.ranks.containsKey(v) : ""
+                    + "Violation of: | vars | = | entries(vars) |";
+            this.order[this.ranks.size()] = v;
+            this.ranks.put(v, this.ranks.size());
+        }
+    }
+
+    /**
+     * Reports the number of variables of {@code this}.
+     *
+     * @return the length of this
+     * @ensures length = | this |
+     */
+    public int length() {
+        return this.order.length;
+    }
+
+    /**
+     * Reports the variable at position {@code i} of {@code this}.
+     *
+     * @param i
+     *            the position
+     * @return the variable at position i
+     * @requires 0 <= i < | this |
+     * @ensures <variable> = this[i, i + 1)
+     */
+    public int variable(int i) {
+        assert 0 <= i && i < this.order.length : ""
+                + "Violation of: 0 <= i < | this |";
+
+        return this.order[i];
+    }
+
+    /**
+     * Reports the position of {@code v} in {@code this}, or -1 if it does
+     * not occur.
+     *
+     * @param v
+     *            the variable
+     * @return the position of v
+     * @ensures <pre>
+     *      if v is in entries(this)
+     *          then this[rank, rank + 1) = <v>
+     *          else rank = -1
+     * </pre>
+     */
+    public int rank(int v) {
+        Integer rank = this.ranks.get(v);
+        int result = -1;
+        if (rank != null) {
+            result = rank;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports whether {@code v} is a variable of {@code this}.
+     *
+     * @param v
+     *            the variable
+     * @return true iff v is in entries(this)
+     * @ensures contains = (v is in entries(this))
+     */
+    public boolean contains(int v) {
+        return this.ranks.containsKey(v);
+    }
+
+    /**
+     * Reports whether the variables shared by {@code this} and {@code other}
+     * appear in the same relative order in both, in time linear in the
+     * length of {@code other}.
+     *
+     * @param other
+     *            the other order
+     * @return true iff IS_COMPATIBLE_ORDERING(this, other)
+     * @ensures isCompatible = IS_COMPATIBLE_ORDERING(this, other)
+     */
+    public boolean isCompatible(Sequence<Integer> other) {
+        boolean result = true;
+        int last = -1;
+        for (int v : other) {
+            Integer rank = this.ranks.get(v);
+            if (rank != null) {
+                result = result && rank > last;
+                last = rank;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports whether the variables shared by {@code this} and {@code other}
+     * appear in the same relative order in both, in time linear in the
+     * length of {@code other}.
+     *
+     * @param other
+     *            the other order
+     * @return true iff IS_COMPATIBLE_ORDERING(this, other)
+     * @ensures isCompatible = IS_COMPATIBLE_ORDERING(this, other)
+     */
+    public boolean isCompatible(VariableOrder other) {
+        boolean result = true;
+        int last = -1;
+        for (int v : other.order) {
+            Integer rank = this.ranks.get(v);
+            if (rank != null) {
+                result = result && rank > last;
+                last = rank;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Combines {@code this} with {@code other} into an order compatible with
+     * both, in time linear in their lengths. Each variable of {@code this}
+     * is preceded by the variables of {@code other} that precede it there
+     * and have not been placed yet; the remaining variables of {@code other}
+     * come last.
+     *
+     * @param other
+     *            the other order
+     * @return the combined order
+     * @requires IS_COMPATIBLE_ORDERING(this, other)
+     * @ensures <pre>
+     *      entries(merge) = entries(this) union entries(other) and
+     *      | merge | = | entries(merge) | and
+     *      IS_COMPATIBLE_ORDERING(merge, this) and
+     *      IS_COMPATIBLE_ORDERING(merge, other)
+     * </pre>
+     */
+    public VariableOrder merge(VariableOrder other) {
+        assert this.isCompatible(other) : ""
+                + "Violation of: IS_COMPATIBLE_ORDERING(this, other)";
+
+        int[] merged = new int[this.order.length + other.order.length];
+        HashMap<Integer, Integer> mergedRanks = new HashMap<Integer, Integer>();
+        int next = 0;
+        int secondIndex = 0;
+        for (int current : this.order) {
+            Integer cutoff = other.ranks.get(current);
+            if (cutoff == null) {
+                mergedRanks.put(current, next);
+                merged[next] = current;
+                next++;
+            } else if (cutoff >= secondIndex) {
+                // Place the variables of other up to current
+                while (secondIndex <= cutoff) {
+                    mergedRanks.put(other.order[secondIndex], next);
+                    merged[next] = other.order[secondIndex];
+                    next++;
+                    secondIndex++;
+                }
+            }
+        }
+        while (secondIndex < other.order.length) {
+            mergedRanks.put(other.order[secondIndex], next);
+            merged[next] = other.order[secondIndex];
+            next++;
+            secondIndex++;
+        }
+
+        return new VariableOrder(Arrays.copyOf(merged, next), mergedRanks);
+    }
+
+    /**
+     * Returns {@code this} as a new sequence.
+     *
+     * @return the variables of this, in order
+     * @ensures toSequence = this
+     */
+    public Sequence<Integer> toSequence() {
+        Sequence<Integer> result = new Sequence1L<Integer>();
+        for (int v : this.order) {
+            result.add(result.length(), v);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        boolean result = (obj == this);
+        if (!result && obj instanceof VariableOrder) {
+            result = Arrays.equals(this.order, ((VariableOrder) obj).order);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        // Computed once, since snapshots are used as keys of ID tables
+        if (this.hash == 0) {
+            this.hash = Arrays.hashCode(this.order);
+        }
+
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("<");
+        for (int i = 0; i < this.order.length; i++) {
+            if (i > 0) {
+                result.append(",");
+            }
+            result.append(this.order[i]);
+        }
+        result.append(">");
+
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,541 @@
+package components.booleanstructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import components.sequence.Sequence;
+
+public class BDDManagerTest extends BooleanStructureTestUtilities {
+
+    /*
+     * Structures built from the same manager share isomorphic subgraphs
+     */
+    @Test
+    public final void testIdenticalStructuresShareNodes() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.setFromTree(new SyntaxTree("1 2 and 3 or"));
+        int count = m.nodeCount();
+
+        BooleanStructure2 exp2 = new BooleanStructure2(m);
+        exp2.setFromTree(new SyntaxTree("1 2 and 3 or"));
+
+        assertEquals(count, m.nodeCount());
+        assertEquals(exp1, exp2);
+    }
+
+    /*
+     * Copying a structure does not create nodes
+     */
+    @Test
+    public final void testCopyFromSharesNodes() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.setFromTree(new SyntaxTree("1 2 or 3 and"));
+        int count = m.nodeCount();
+
+        BooleanStructure exp2 = exp1.newInstance();
+        exp2.copyFrom(exp1);
+
+        assertEquals(count, m.nodeCount());
+        assertEquals(exp1, exp2);
+    }
+
+    /*
+     * Copying from a structure of another implementation builds the reduced
+     * diagram of its function under its order
+     */
+    @Test
+    public final void testCopyFromReference() {
+        BDDManager m = new BDDManager();
+        BooleanStructure exp1 = new BooleanStructureR();
+        exp1.setFromTree(new SyntaxTree("1 2 and 3 2 not and or"));
+        exp1.reorder(createSequence(2, 3, 1));
+        BooleanStructure2 exp2 = new BooleanStructure2(m);
+        exp2.setFromTree(new SyntaxTree("1 2 and 3 2 not and or"));
+        exp2.reorder(createSequence(2, 3, 1));
+        int count = m.nodeCount();
+
+        BooleanStructure2 exp3 = new BooleanStructure2(m);
+        exp3.copyFrom(exp1);
+
+        assertEquals(exp1, exp3);
+        assertEquals(exp2.rootID(), exp3.rootID());
+        assertEquals(count, m.nodeCount());
+    }
+
+    /*
+     * Copying across managers copies each node once, whichever edges reach
+     * it
+     */
+    @Test
+    public final void testCopyFromAcrossManagers() {
+        BDDManager m1 = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m1);
+        exp1.setFromTree(new SyntaxTree("1 2 not and 1 not 2 and or 3 not and"
+                + " 1 2 not and 1 not 2 and or not 3 and or"));
+        BDDManager m2 = new BDDManager();
+        BooleanStructure2 exp2 = new BooleanStructure2(m2);
+
+        exp2.copyFrom(exp1);
+
+        assertEquals(exp1, exp2);
+        assertEquals(m1.dagSize(exp1.rootID()), m2.nodeCount());
+    }
+
+    /*
+     * Negation does not create nodes, and a function shares its nodes with
+     * its negation
+     */
+    @Test
+    public final void testNegateSharesNodes() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.setFromTree(new SyntaxTree("1 2 and 3 or"));
+        BooleanStructure exp2 = new BooleanStructureR();
+        exp2.setFromTree(new SyntaxTree("1 2 and 3 or not"));
+        int count = m.nodeCount();
+
+        exp1.negate();
+        BooleanStructure2 exp3 = new BooleanStructure2(m);
+        exp3.setFromTree(new SyntaxTree("1 not 2 not or 3 not and"));
+
+        assertEquals(count, m.nodeCount());
+        assertEquals(exp2, exp1);
+        assertEquals(exp1.rootID(), exp3.rootID());
+    }
+
+    /*
+     * Collection keeps the nodes of live structures and their meaning
+     */
+    @Test
+    public final void testCollectPreservesLiveStructures() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.setFromTree(new SyntaxTree("1 2 or 3 and"));
+        BooleanStructure exp2 = new BooleanStructureR();
+        exp2.setFromTree(new SyntaxTree("1 2 or 3 and"));
+
+        BooleanStructure2 scratch = new BooleanStructure2(m);
+        scratch.setFromTree(new SyntaxTree("4 5 and 6 and 7 or"));
+        scratch.clear();
+        int count = m.nodeCount();
+
+        m.collect();
+
+        assertEquals(1, m.collections());
+        assertTrue(m.nodeCount() < count);
+        assertEquals(exp2, exp1);
+    }
+
+    /*
+     * Model counting does not enumerate assignments
+     */
+    @Test
+    public final void testSatCountManyVariables() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        for (int i = 0; i < 40; i++) {
+            BooleanStructure2 v = new BooleanStructure2(m);
+            v.setFromInt(i);
+            exp1.disj(v);
+        }
+
+        // All assignments but the empty one satisfy the disjunction
+        assertEquals(BigInteger.ONE.shiftLeft(40).subtract(BigInteger.ONE),
+                exp1.satCount());
+        assertEquals(40.0, exp1.satCountLog2(), 1e-9);
+    }
+
+    /*
+     * The string of a structure lists its cubes rather than enumerating
+     * assignments
+     */
+    @Test
+    public final void testToStringManyVariables() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        for (int i = 0; i < 40; i++) {
+            BooleanStructure2 v = new BooleanStructure2(m);
+            v.setFromInt(i);
+            exp1.disj(v);
+        }
+
+        String s = exp1.toString();
+
+        assertEquals(exp1.toStringCubes(), s);
+        assertTrue(s.startsWith("( {{0},{~0,1},{~0,~1,2},"));
+    }
+
+    /*
+     * Reordering a structure over too many variables to enumerate
+     */
+    @Test
+    public final void testReorderManyVariables() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        for (int i = 0; i < 12; i++) {
+            BooleanStructure2 pair = new BooleanStructure2(m);
+            pair.setFromTree(new SyntaxTree(i + " " + (i + 12) + " and"));
+            exp1.disj(pair);
+        }
+        BigInteger count = exp1.satCount();
+
+        // Separating the pairs makes the diagram exponential
+        Sequence<Integer> separated = createSequence();
+        for (int i = 0; i < 24; i++) {
+            separated.add(separated.length(), i);
+        }
+        exp1.reorder(separated);
+        int size = m.dagSize(exp1.rootID());
+
+        // Interleaving them makes it linear again
+        Sequence<Integer> interleaved = createSequence();
+        for (int i = 0; i < 12; i++) {
+            interleaved.add(interleaved.length(), i);
+            interleaved.add(interleaved.length(), i + 12);
+        }
+        exp1.reorder(interleaved);
+
+        assertEquals(count, exp1.satCount());
+        assertTrue(exp1.evaluate(createSet(3, 15)));
+        assertTrue(!exp1.evaluate(createSet(3, 14)));
+        assertTrue(size > 1 << 12);
+        assertEquals(2 * 12 + 1, m.dagSize(exp1.rootID()));
+    }
+
+    /*
+     * Cubes are listed without enumerating the assignments they cover
+     */
+    @Test
+    public final void testToStringCubesManyVariables() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        StringBuilder cube = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            BooleanStructure2 literal = new BooleanStructure2(m);
+            literal.setFromInt(i);
+            if (i % 2 == 1) {
+                literal.negate();
+                cube.append(",~");
+            } else if (i > 0) {
+                cube.append(",");
+            }
+            cube.append(i);
+            exp1.conj(literal);
+        }
+
+        assertEquals("( {{" + cube + "}}, " + exp1.vars() + " )",
+                exp1.toStringCubes());
+    }
+
+    /*
+     * Restriction reuses the nodes below the restricted variables
+     */
+    @Test
+    public final void testRestrictSharesNodes() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        Sequence<Integer> interleaved = createSequence();
+        for (int i = 0; i < 12; i++) {
+            BooleanStructure2 pair = new BooleanStructure2(m);
+            pair.setFromTree(new SyntaxTree(i + " " + (i + 12) + " and"));
+            exp1.disj(pair);
+            interleaved.add(interleaved.length(), i);
+            interleaved.add(interleaved.length(), i + 12);
+        }
+        exp1.reorder(interleaved);
+        BooleanStructure2 exp2 = new BooleanStructure2(m);
+        exp2.copyFrom(exp1);
+        int nodes = m.nodeCount();
+
+        exp1.restrict(createSet(), createSet(0));
+        exp2.restrict(createSet(), createSet(0));
+
+        assertEquals(exp1, exp2);
+        assertEquals(2 * 11 + 1, m.dagSize(exp1.rootID()));
+        assertTrue(exp1.evaluate(createSet(3, 15)));
+        assertTrue(!exp1.evaluate(createSet(12)));
+        // The result and the cube naming the restriction already exist
+        assertEquals(nodes, m.nodeCount());
+    }
+
+    /*
+     * Sifting recovers a linear order for separated pairs
+     */
+    @Test
+    public final void testReduceHeapSeparatedPairs() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        for (int i = 0; i < 8; i++) {
+            BooleanStructure2 pair = new BooleanStructure2(m);
+            pair.setFromTree(new SyntaxTree(i + " " + (i + 8) + " and"));
+            exp1.disj(pair);
+        }
+        Sequence<Integer> separated = createSequence();
+        for (int i = 0; i < 16; i++) {
+            separated.add(separated.length(), i);
+        }
+        exp1.reorder(separated);
+        BooleanStructure exp2 = new BooleanStructureR();
+        exp2.copyFrom(exp1);
+        int size = m.dagSize(exp1.rootID());
+
+        exp1.reduceHeap();
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertEquals(2 * 8 + 1, m.dagSize(exp1.rootID()));
+        assertEquals(1, m.reorderings());
+        assertEquals(size - (2 * 8 + 1), m.reorderNodesSaved());
+    }
+
+    /*
+     * Sifting leaves the nodes it no longer needs to be reclaimed once the
+     * collection threshold is reached
+     */
+    @Test
+    public final void testReduceHeapCollects() {
+        final int pairs = 12;
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        for (int i = 0; i < pairs; i++) {
+            BooleanStructure2 pair = new BooleanStructure2(m);
+            pair.setFromTree(new SyntaxTree(i + " " + (i + pairs) + " and"));
+            exp1.disj(pair);
+        }
+        Sequence<Integer> separated = createSequence();
+        for (int i = 0; i < 2 * pairs; i++) {
+            separated.add(separated.length(), i);
+        }
+        exp1.reorder(separated);
+        BooleanStructure2 exp2 = new BooleanStructure2(new BDDManager());
+        exp2.copyFrom(exp1);
+        int count = m.nodeCount();
+
+        exp1.reduceHeap();
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertEquals(2 * pairs + 1, m.dagSize(exp1.rootID()));
+        assertTrue(m.collections() > 0);
+        assertTrue(m.nodeCount() < count);
+    }
+
+    /*
+     * Reordering reclaims the nodes of the swapped levels as it goes
+     */
+    @Test
+    public final void testReorderCollects() {
+        final int pairs = 10;
+        BDDManager m = new BDDManager(1 << 10, 1 << 10);
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.negate();
+        for (int i = 0; i < pairs; i++) {
+            BooleanStructure2 pair = new BooleanStructure2(m);
+            pair.setFromTree(new SyntaxTree(i + " " + (i + pairs) + " and"));
+            exp1.disj(pair);
+        }
+        BooleanStructure2 exp2 = new BooleanStructure2(new BDDManager());
+        exp2.copyFrom(exp1);
+        Sequence<Integer> separated = createSequence();
+        for (int i = 0; i < 2 * pairs; i++) {
+            separated.add(separated.length(), i);
+        }
+        int collections = m.collections();
+
+        exp1.reorder(separated);
+
+        assertTrue(m.collections() > collections);
+        assertTrue(exp1.isEquivalent(exp2));
+    }
+
+    /*
+     * Sifting a small structure does not collect, so the computed tables of
+     * the other structures of the manager are kept
+     */
+    @Test
+    public final void testReduceHeapSmallDoesNotCollect() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.setFromTree(new SyntaxTree("1 4 and 2 5 and or 3 6 and or"));
+        BooleanStructure2 exp2 = new BooleanStructure2(m);
+        exp2.copyFrom(exp1);
+
+        exp1.reduceHeap();
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertEquals(0, m.collections());
+    }
+
+    /*
+     * Equal structures of both kernels hash alike, so hashed collections
+     * find either one
+     */
+    @Test
+    public final void testHashSetAcrossKernels() {
+        SyntaxTree t1 = new SyntaxTree(
+                "6 4 and 6 5 or 6 1 or 3 2 or or and and");
+        Sequence<Integer> order = createSequence(6, 4, 5, 1, 3, 2);
+        BooleanStructure exp1 = new BooleanStructure1();
+        exp1.setFromTree(t1);
+        exp1.reorder(order);
+        BooleanStructure exp2 = new BooleanStructure2(new BDDManager());
+        exp2.setFromTree(t1);
+        exp2.reorder(createSequence(6, 4, 5, 1, 3, 2));
+        HashSet<BooleanStructure> set1 = new HashSet<BooleanStructure>();
+        set1.add(exp1);
+        HashSet<BooleanStructure> set2 = new HashSet<BooleanStructure>();
+        set2.add(exp2);
+
+        assertEquals(exp1, exp2);
+        assertEquals(exp1.hashCode(), exp2.hashCode());
+        assertTrue(set1.contains(exp2));
+        assertTrue(set2.contains(exp1));
+    }
+
+    /*
+     * Equal orders share an ID, whether or not they are the same snapshot
+     */
+    @Test
+    public final void testOrderIdEqualOrders() {
+        BDDManager m = new BDDManager();
+        VariableOrder order1 = new VariableOrder(createSequence(1, 2, 3));
+        VariableOrder order2 = new VariableOrder(createSequence(1, 2, 3));
+        VariableOrder order3 = new VariableOrder(createSequence(1, 3, 2));
+
+        int id1 = m.orderId(order1);
+
+        assertEquals(id1, m.orderId(order1));
+        assertEquals(id1, m.orderId(order2));
+        assertTrue(id1 != m.orderId(order3));
+    }
+
+    /*
+     * Structures built past the reordering threshold are sifted
+     */
+    @Test
+    public final void testAutomaticReorder() {
+        BDDManager m = new BDDManager();
+        m.setReorderThreshold(16);
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        SyntaxTree t1 = new SyntaxTree(
+                "1 4 and 2 5 and or 3 6 and or 7 not and");
+        BooleanStructure exp2 = new BooleanStructureR();
+        exp2.setFromTree(t1);
+
+        exp1.setFromTree(t1);
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertTrue(m.reorderings() > 0);
+    }
+
+    /*
+     * Automatic reordering also runs while clauses are read, each partial
+     * result being checked against the threshold
+     */
+    @Test
+    public final void testAutomaticReorderCNF() throws IOException {
+        BDDManager m = new BDDManager();
+        m.setReorderThreshold(16);
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        String cnf = "p cnf 6 4" + System.lineSeparator() + "1 4 0"
+                + System.lineSeparator() + "2 5 0" + System.lineSeparator()
+                + "3 6 0" + System.lineSeparator() + "-1 -2 -3 0"
+                + System.lineSeparator();
+        BooleanStructure exp2 = new BooleanStructureR();
+        exp2.setFromCNF(new StringReader(cnf));
+
+        exp1.setFromCNF(new StringReader(cnf));
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertTrue(m.reorderings() > 0);
+    }
+
+    /*
+     * Equivalence of structures under incompatible orders
+     */
+    @Test
+    public final void testEquivalentIncompatibleOrders() {
+        BDDManager m = new BDDManager();
+        BooleanStructure2 exp1 = new BooleanStructure2(m);
+        exp1.setFromTree(new SyntaxTree("1 2 and 3 or"));
+        BooleanStructure2 exp2 = new BooleanStructure2(m);
+        exp2.copyFrom(exp1);
+        Sequence<Integer> order = createSequence(3, 2, 1);
+        exp2.reorder(order);
+        BooleanStructure2 exp3 = new BooleanStructure2(m);
+        exp3.setFromTree(new SyntaxTree("1 2 or 3 and"));
+        exp3.reorder(createSequence(2, 3, 1));
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertTrue(exp2.isEquivalent(exp1));
+        assertTrue(!exp1.isEquivalent(exp3));
+        assertTrue(!exp1.equals(exp2));
+    }
+
+    /*
+     * Equivalence of structures of different managers
+     */
+    @Test
+    public final void testEquivalentAcrossManagers() {
+        BooleanStructure2 exp1 = new BooleanStructure2(new BDDManager());
+        exp1.setFromTree(new SyntaxTree("1 2 or 3 and"));
+        BooleanStructure2 exp2 = new BooleanStructure2(new BDDManager());
+        exp2.setFromTree(new SyntaxTree("1 3 and 2 3 and or"));
+        BooleanStructure2 exp3 = new BooleanStructure2(new BDDManager());
+        exp3.setFromTree(new SyntaxTree("1 2 and 3 or"));
+
+        assertTrue(exp1.isEquivalent(exp2));
+        assertTrue(!exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Operations between structures of different managers
+     */
+    @Test
+    public final void testConjAcrossManagers() {
+        BooleanStructure2 exp1 = new BooleanStructure2(new BDDManager());
+        exp1.setFromTree(new SyntaxTree("1 2 or"));
+        BooleanStructure2 exp2 = new BooleanStructure2(new BDDManager());
+        exp2.setFromTree(new SyntaxTree("2 3 and"));
+        BooleanStructure exp3 = new BooleanStructureR();
+        exp3.setFromTree(new SyntaxTree("1 2 or 2 3 and and"));
+
+        exp1.conj(exp2);
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * Structures constructed without a manager on different threads do not
+     * share a manager
+     */
+    @Test
+    public final void testDefaultManagerPerThread()
+            throws InterruptedException {
+        BooleanStructure2 exp1 = new BooleanStructure2();
+        BooleanStructure2[] exp2 = new BooleanStructure2[1];
+        Thread t = new Thread(() -> {
+            exp2[0] = new BooleanStructure2();
+        });
+        t.start();
+        t.join();
+
+        assertTrue(exp1.manager() == BDDManager.defaultManager());
+        assertTrue(exp1.manager() == new BooleanStructure2().manager());
+        assertTrue(exp1.manager() != exp2[0].manager());
+    }
+
+}
@@ -1475,6 +1475,223 @@ public abstract class BooleanStructureKernelTest
         assertEquals(exp3, exp1);
     }
 
+    /*
+     * Perform the xor operation on (1 or 2) and (2 and 3)
+     */
+    @Test
+    public final void testBinaryApplyXorTwoVariablesOredTwoVariablesAnded() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or");
+        SyntaxTree t2 = new SyntaxTree("2 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorRef(t1);
+        BooleanStructure exp4 = this.constructorRef(t2);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.apply(BinaryOperator.XOR, exp2, newVars1);
+        exp3.apply(BinaryOperator.XOR, exp4, newVars2);
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * Perform the nand operation on (1 or 2) and (2 and 3)
+     */
+    @Test
+    public final void testBinaryApplyNandTwoVariablesOredTwoVariablesAnded() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or");
+        SyntaxTree t2 = new SyntaxTree("2 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorRef(t1);
+        BooleanStructure exp4 = this.constructorRef(t2);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.apply(BinaryOperator.NAND, exp2, newVars1);
+        exp3.apply(BinaryOperator.NAND, exp4, newVars2);
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * Perform the nor operation on (1 or 2) and (2 and 3)
+     */
+    @Test
+    public final void testBinaryApplyNorTwoVariablesOredTwoVariablesAnded() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or");
+        SyntaxTree t2 = new SyntaxTree("2 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorRef(t1);
+        BooleanStructure exp4 = this.constructorRef(t2);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.apply(BinaryOperator.NOR, exp2, newVars1);
+        exp3.apply(BinaryOperator.NOR, exp4, newVars2);
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * Perform the implies operation on (1 or 2) and (2 and 3)
+     */
+    @Test
+    public final void testBinaryApplyImpliesTwoVariablesOredTwoVariablesAnded() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or");
+        SyntaxTree t2 = new SyntaxTree("2 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorRef(t1);
+        BooleanStructure exp4 = this.constructorRef(t2);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.apply(BinaryOperator.IMPLIES, exp2, newVars1);
+        exp3.apply(BinaryOperator.IMPLIES, exp4, newVars2);
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * Perform the difference operation on (1 or 2) and (2 and 3)
+     */
+    @Test
+    public final void testBinaryApplyDiffTwoVariablesOredTwoVariablesAnded() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or");
+        SyntaxTree t2 = new SyntaxTree("2 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorRef(t1);
+        BooleanStructure exp4 = this.constructorRef(t2);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.apply(BinaryOperator.DIFF, exp2, newVars1);
+        exp3.apply(BinaryOperator.DIFF, exp4, newVars2);
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * The xor of a structure with itself is false
+     */
+    @Test
+    public final void testBinaryApplyXorSameStructure() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t1);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+
+        exp1.apply(BinaryOperator.XOR, exp2, newVars1);
+
+        assertTrue(!exp1.isSat());
+    }
+
+    /*
+     * If-then-else Tests
+     */
+
+    /*
+     * If-then-else with a true condition selects the first branch
+     */
+    @Test
+    public final void testIteTrueCondition() {
+        BooleanStructure exp1 = this.constructorTest(true);
+        BooleanStructure exp2 = this.constructorTest(1);
+        BooleanStructure exp3 = this.constructorTest(false);
+        BooleanStructure exp4 = this.constructorRef(true);
+        BooleanStructure exp5 = this.constructorRef(1);
+        BooleanStructure exp6 = this.constructorRef(false);
+
+        Sequence<Integer> newVars1 = createSequence(1);
+        Sequence<Integer> newVars2 = createSequence(1);
+
+        exp1.ite(exp2, exp3, newVars1);
+        exp4.ite(exp5, exp6, newVars2);
+
+        assertEquals(exp4, exp1);
+        assertEquals(exp5, exp1);
+    }
+
+    /*
+     * If-then-else with a false condition selects the second branch
+     */
+    @Test
+    public final void testIteFalseCondition() {
+        BooleanStructure exp1 = this.constructorTest(false);
+        BooleanStructure exp2 = this.constructorTest(true);
+        BooleanStructure exp3 = this.constructorTest(1);
+        BooleanStructure exp4 = this.constructorRef(false);
+        BooleanStructure exp5 = this.constructorRef(true);
+        BooleanStructure exp6 = this.constructorRef(1);
+
+        Sequence<Integer> newVars1 = createSequence(1);
+        Sequence<Integer> newVars2 = createSequence(1);
+
+        exp1.ite(exp2, exp3, newVars1);
+        exp4.ite(exp5, exp6, newVars2);
+
+        assertEquals(exp4, exp1);
+        assertEquals(exp6, exp1);
+    }
+
+    /*
+     * If-then-else of three single variables (a multiplexer)
+     */
+    @Test
+    public final void testIteThreeSingleVariables() {
+        BooleanStructure exp1 = this.constructorTest(1);
+        BooleanStructure exp2 = this.constructorTest(2);
+        BooleanStructure exp3 = this.constructorTest(3);
+        BooleanStructure exp4 = this.constructorRef(1);
+        BooleanStructure exp5 = this.constructorRef(2);
+        BooleanStructure exp6 = this.constructorRef(3);
+        BooleanStructure exp7 = this.constructorRef(
+                new SyntaxTree("1 2 and 1 not 3 and or"));
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.ite(exp2, exp3, newVars1);
+        exp4.ite(exp5, exp6, newVars2);
+
+        assertEquals(exp4, exp1);
+        assertTrue(exp1.isEquivalent(exp7));
+    }
+
+    /*
+     * If-then-else whose branches share the condition's variables
+     */
+    @Test
+    public final void testIteSharedVariables() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or");
+        SyntaxTree t2 = new SyntaxTree("2 3 and 2 not 3 not and or");
+        SyntaxTree t3 = new SyntaxTree("1 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorTest(t3);
+        BooleanStructure exp4 = this.constructorRef(t1);
+        BooleanStructure exp5 = this.constructorRef(t2);
+        BooleanStructure exp6 = this.constructorRef(t3);
+
+        Sequence<Integer> newVars1 = createSequence(1, 2, 3);
+        Sequence<Integer> newVars2 = createSequence(1, 2, 3);
+
+        exp1.ite(exp2, exp3, newVars1);
+        exp4.ite(exp5, exp6, newVars2);
+
+        assertEquals(exp4, exp1);
+    }
+
     /*
      * Expand Tests
      */
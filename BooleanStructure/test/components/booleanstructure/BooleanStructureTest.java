@@ -4,6 +4,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
@@ -108,6 +115,69 @@ public abstract class BooleanStructureTest extends BooleanStructureKernelTest {
         assertEquals(exp4, exp2);
     }
 
+    /*
+     * Truth table written to an Appendable
+     */
+    @Test
+    public final void testToStringTTAppendable() throws IOException {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+        StringBuilder out = new StringBuilder("TT ");
+
+        exp1.toStringTT(out);
+
+        assertEquals("TT " + exp2.toStringTT(), out.toString());
+        assertEquals(exp2, exp1);
+    }
+
+    /*
+     * toStringCubes Tests
+     */
+
+    /*
+     * Cubes of True and False expressions
+     */
+    @Test
+    public final void testToStringCubesConstants() {
+        BooleanStructure exp1 = this.constructorTest(true);
+        BooleanStructure exp2 = this.constructorTest(false);
+
+        assertEquals("( {{}}, <> )", exp1.toStringCubes());
+        assertEquals("( {}, <> )", exp2.toStringCubes());
+    }
+
+    /*
+     * Cubes list the variables tested on each path, true branch first
+     */
+    @Test
+    public final void testToStringCubesExpression() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+        exp1.reorder(createSequence(1, 2, 3));
+        exp2.reorder(createSequence(1, 2, 3));
+
+        assertEquals("( {{1,2},{1,~2,3},{~1,3}}, <1,2,3> )",
+                exp1.toStringCubes());
+        assertEquals(exp2.toStringCubes(), exp1.toStringCubes());
+        assertEquals(exp2, exp1);
+    }
+
+    /*
+     * Variables the function does not depend on are never listed
+     */
+    @Test
+    public final void testToStringCubesDontCare() {
+        BooleanStructure exp1 = this.constructorTest(
+                new SyntaxTree("1 2 and 1 2 not and or 3 and"));
+        BooleanStructure exp2 = this.constructorRef(
+                new SyntaxTree("1 2 and 1 2 not and or 3 and"));
+
+        assertEquals(exp2.toStringCubes(), exp1.toStringCubes());
+        assertTrue(exp1.toStringCubes().startsWith("( {{1,3}}, "));
+    }
+
     /*
      * isSat Tests
      */
@@ -183,6 +253,298 @@ public abstract class BooleanStructureTest extends BooleanStructureKernelTest {
         assertEquals(exp2, exp1);
     }
 
+    /*
+     * satCount tests
+     */
+
+    /*
+     * Model count of the True and False Expressions
+     */
+    @Test
+    public final void testSatCountConstants() {
+        BooleanStructure exp1 = this.constructorTest(true);
+        BooleanStructure exp2 = this.constructorTest(false);
+
+        assertEquals(BigInteger.ONE, exp1.satCount());
+        assertEquals(BigInteger.ZERO, exp2.satCount());
+        assertEquals(0.0, exp1.satCountLog2(), 0.0);
+        assertEquals(Double.NEGATIVE_INFINITY, exp2.satCountLog2(), 0.0);
+    }
+
+    /*
+     * Model count of a three variable expression and its negation
+     */
+    @Test
+    public final void testSatCountThreeVariableExpression() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+
+        assertEquals(exp2.satCount(), exp1.satCount());
+        assertEquals(BigInteger.valueOf(3), exp1.satCount());
+        assertEquals(Math.log(3) / Math.log(2), exp1.satCountLog2(), 1e-9);
+
+        exp1.negate();
+
+        assertEquals(BigInteger.valueOf(5), exp1.satCount());
+    }
+
+    /*
+     * Model count after expanding by variables no node tests
+     */
+    @Test
+    public final void testSatCountExpanded() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 and"));
+
+        exp1.expand(createSet(3, 4));
+
+        assertEquals(BigInteger.valueOf(4), exp1.satCount());
+    }
+
+    /*
+     * setFromTree Tests
+     */
+
+    /*
+     * A left-deep tree far deeper than the call stack could recurse
+     */
+    @Test
+    public final void testSetFromTreeDeep() {
+        StringBuilder formula = new StringBuilder("1 2 or");
+        for (int i = 0; i < 100000; i++) {
+            formula.append(" ").append(i % 2 + 1).append(" or");
+        }
+        formula.append(" 1 not and");
+        SyntaxTree t1 = new SyntaxTree(formula.toString());
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorRef(
+                new SyntaxTree("1 not 2 and"));
+
+        exp1.setFromTree(t1);
+
+        assertTrue(exp1.isEquivalent(exp2));
+    }
+
+    /*
+     * Conjunctions scheduled pairwise, with conjuncts of incompatible orders
+     */
+    @Test
+    public final void testSetFromTreeBalanced() {
+        SyntaxTree t1 = new SyntaxTree(
+                "1 2 or 3 and 2 1 not or and 4 3 or and 1 4 not or and");
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorRef();
+        BooleanStructure exp3 = this.constructorRef(new SyntaxTree(
+                "1 2 or 3 and 1 not 2 or and 3 4 or and 1 4 not or and"));
+
+        exp1.setFromTree(t1, ConjunctionSchedule.BALANCED);
+        exp2.setFromTree(t1, ConjunctionSchedule.BALANCED);
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Conjunctions scheduled smallest first, below a negation
+     */
+    @Test
+    public final void testSetFromTreeSmallestFirst() {
+        SyntaxTree t1 = new SyntaxTree(
+                "1 2 3 and and 2 3 or 4 and and 1 not or not");
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorRef();
+        BooleanStructure exp3 = this.constructorRef(t1);
+
+        exp1.setFromTree(t1, ConjunctionSchedule.SMALLEST_FIRST);
+        exp2.setFromTree(t1, ConjunctionSchedule.SMALLEST_FIRST);
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Structure built under a static order computed from the tree
+     */
+    @Test
+    public final void testSetFromTreeStaticOrder() {
+        SyntaxTree t1 = new SyntaxTree(
+                "1 2 or 5 6 or and 3 4 or and 2 3 or and 4 5 or and");
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorRef();
+        BooleanStructure exp3 = this.constructorRef(t1);
+        VariableOrder order = StaticOrder.fromTree(t1, OrderingHeuristic.FORCE);
+
+        exp1.setFromTree(t1, ConjunctionSchedule.BALANCED,
+                OrderingHeuristic.FORCE);
+        exp2.setFromTree(t1, ConjunctionSchedule.BALANCED,
+                OrderingHeuristic.FORCE);
+
+        assertEquals(exp2, exp1);
+        assertEquals(order.toSequence(), exp1.vars());
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Subformulas repeated in the tree are built once and reused
+     */
+    @Test
+    public final void testSetFromTreeSharedSubformulas() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or 3 and 1 2 or 3 and not 4 and"
+                + " or 1 2 or 3 and and 1 2 or 3 and 4 or and");
+        BooleanStructure exp1 = this.constructorRef(
+                new SyntaxTree("1 2 or 3 and"));
+
+        for (ConjunctionSchedule schedule : ConjunctionSchedule.values()) {
+            BooleanStructure exp2 = this.constructorTest();
+            BooleanStructure exp3 = this.constructorRef();
+
+            exp2.setFromTree(t1, schedule);
+            exp3.setFromTree(t1, schedule);
+
+            assertEquals(exp3, exp2);
+            assertTrue(exp2.isEquivalent(exp1));
+        }
+    }
+
+    /*
+     * setFromCNF Tests
+     */
+
+    /*
+     * Formula read from DIMACS CNF, with comments and an unordered clause
+     */
+    @Test
+    public final void testSetFromCNF() throws IOException {
+        String cnf = "c example" + System.lineSeparator() + "p cnf 3 3"
+                + System.lineSeparator() + "1 -2 0" + System.lineSeparator()
+                + "2 3 0" + System.lineSeparator() + "-3 1 2 0"
+                + System.lineSeparator();
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorRef();
+        BooleanStructure exp3 = this.constructorRef(new SyntaxTree(
+                "1 2 not or 2 3 or and 1 2 or 3 not or and"));
+
+        exp1.setFromCNF(new StringReader(cnf));
+        exp2.setFromCNF(new StringReader(cnf));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Every schedule reads the same formula from DIMACS CNF
+     */
+    @Test
+    public final void testSetFromCNFSchedules() throws IOException {
+        String cnf = "p cnf 4 5\n1 -2 0\n2 3 0\n-3 1 4 0\n-4 -1 0\n"
+                + "4 2 0\n";
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorTest();
+        BooleanStructure exp3 = this.constructorRef();
+
+        exp1.setFromCNF(new StringReader(cnf), ConjunctionSchedule.BALANCED);
+        exp2.setFromCNF(new StringReader(cnf),
+                ConjunctionSchedule.SMALLEST_FIRST);
+        exp3.setFromCNF(new StringReader(cnf));
+
+        assertTrue(exp1.isEquivalent(exp3));
+        assertTrue(exp2.isEquivalent(exp3));
+    }
+
+    /*
+     * Every heuristic gives a structure following its order
+     */
+    @Test
+    public final void testSetFromCNFStaticOrders() throws IOException {
+        String cnf = "p cnf 6 6\n1 -2 0\n5 6 0\n-3 4 0\n2 3 0\n4 -5 0\n"
+                + "6 1 0\n";
+        int[][] clauses = { { 1, -2 }, { 5, 6 }, { -3, 4 }, { 2, 3 },
+                { 4, -5 }, { 6, 1 } };
+        BooleanStructure exp1 = this.constructorRef();
+        exp1.setFromCNF(new StringReader(cnf));
+
+        for (OrderingHeuristic heuristic : OrderingHeuristic.values()) {
+            BooleanStructure exp2 = this.constructorTest();
+            VariableOrder order = StaticOrder.fromClauses(clauses, heuristic);
+
+            exp2.setFromCNF(new StringReader(cnf),
+                    ConjunctionSchedule.SMALLEST_FIRST, heuristic);
+
+            assertEquals(order.toSequence(), exp2.vars());
+            assertTrue(exp2.isEquivalent(exp1));
+        }
+    }
+
+    /*
+     * An empty clause makes the formula false, and reading stops at "%"
+     */
+    @Test
+    public final void testSetFromCNFEmptyClause() throws IOException {
+        BooleanStructure exp1 = this.constructorTest();
+        BooleanStructure exp2 = this.constructorTest();
+
+        exp1.setFromCNF(new StringReader("p cnf 1 2\n1 0\n0\n"));
+        exp2.setFromCNF(new StringReader("p cnf 1 2\n1 0\n%\n0\n"));
+
+        assertFalse(exp1.isSat());
+        assertTrue(exp2.isEquivalent(this.constructorRef(1)));
+    }
+
+    /*
+     * hashCode Tests
+     */
+
+    /*
+     * hashCode agrees with equals for structures built differently and
+     * for the reference implementation
+     */
+    @Test
+    public final void testHashCodeEqualStructures() {
+        BooleanStructure exp1 = this.constructorTest(
+                new SyntaxTree("1 2 or 3 and"));
+        BooleanStructure exp2 = this.constructorTest(
+                new SyntaxTree("1 3 and 2 3 and or"));
+        exp1.reorder(createSequence(1, 2, 3));
+        exp2.reorder(createSequence(1, 2, 3));
+        BooleanStructure exp3 = this.constructorRef(
+                new SyntaxTree("1 2 or 3 and"));
+        exp3.reorder(createSequence(1, 2, 3));
+        BooleanStructure exp4 = this.constructorTest(
+                new SyntaxTree("1 2 and 3 or"));
+        exp4.reorder(createSequence(1, 2, 3));
+
+        assertEquals(exp1, exp2);
+        assertEquals(exp1.hashCode(), exp2.hashCode());
+        assertEquals(exp3, exp1);
+        assertEquals(exp3.hashCode(), exp1.hashCode());
+        assertFalse(exp1.hashCode() == exp4.hashCode());
+    }
+
+    /*
+     * hashCode agrees with equals on many variables, across implementations
+     */
+    @Test
+    public final void testHashCodeManyVariables() {
+        StringBuilder formula = new StringBuilder("1");
+        for (int i = 2; i <= 12; i++) {
+            formula.append(" " + i + " and");
+        }
+        BooleanStructure exp1 = this.constructorTest(
+                new SyntaxTree(formula.toString()));
+        BooleanStructure exp2 = this.constructorTest(
+                new SyntaxTree(formula.toString()));
+        BooleanStructure exp3 = this.constructorRef(
+                new SyntaxTree(formula.toString()));
+        HashSet<BooleanStructure> set = new HashSet<BooleanStructure>();
+        set.add(exp1);
+
+        assertEquals(exp1, exp2);
+        assertEquals(exp1.hashCode(), exp2.hashCode());
+        assertEquals(exp3, exp1);
+        assertEquals(exp3.hashCode(), exp1.hashCode());
+        assertTrue(set.contains(exp3));
+    }
+
     /*
      * numVariables Tests
      */
@@ -428,6 +790,308 @@ public abstract class BooleanStructureTest extends BooleanStructureKernelTest {
 
     }
 
+    /*
+     * Quantification Tests
+     */
+
+    /*
+     * Exists over no variables leaves the structure unchanged
+     */
+    @Test
+    public final void testExistsNoVariables() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+
+        exp1.exists(createSet());
+
+        assertEquals(exp2, exp1);
+    }
+
+    /*
+     * Exists over one variable of a conjunction
+     */
+    @Test
+    public final void testExistsOneVariableAnd() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 and"));
+        BooleanStructure exp2 = this.constructorRef(1);
+
+        exp1.exists(createSet(2));
+
+        assertEquals(exp2, exp1);
+    }
+
+    /*
+     * Exists over two variables of a three variable expression
+     */
+    @Test
+    public final void testExistsTwoVariables() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+
+        exp1.exists(createSet(1, 2));
+        exp2.exists(createSet(1, 2));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isValid());
+        assertEquals(1, exp1.numVariables());
+    }
+
+    /*
+     * Forall over one variable of a disjunction
+     */
+    @Test
+    public final void testForallOneVariableOr() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 or"));
+        BooleanStructure exp2 = this.constructorRef(1);
+
+        exp1.forall(createSet(2));
+
+        assertEquals(exp2, exp1);
+    }
+
+    /*
+     * Forall over one variable of a three variable expression
+     */
+    @Test
+    public final void testForallOneVariable() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+        BooleanStructure exp3 = this.constructorRef(3);
+
+        exp1.forall(createSet(1));
+        exp2.forall(createSet(1));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Relational product quantifying a variable shared by both operands
+     */
+    @Test
+    public final void testAndExistsSharedVariable() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 and"));
+        BooleanStructure exp2 = this.constructorTest(new SyntaxTree("2 3 or"));
+        BooleanStructure exp3 = this.constructorRef(new SyntaxTree("1 2 and"));
+        BooleanStructure exp4 = this.constructorRef(new SyntaxTree("2 3 or"));
+
+        exp1.andExists(exp2, createSet(2));
+        exp3.conj(exp4);
+        exp3.exists(createSet(2));
+
+        assertEquals(exp3, exp1);
+        assertTrue(exp1.isEquivalent(this.constructorRef(1)));
+    }
+
+    /*
+     * Relational product quantifying variables of each operand
+     */
+    @Test
+    public final void testAndExistsVariablesOfEachOperand() {
+        SyntaxTree t1 = new SyntaxTree("1 2 or 3 and");
+        SyntaxTree t2 = new SyntaxTree("3 not 4 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorTest(t2);
+        BooleanStructure exp3 = this.constructorRef(t1);
+        BooleanStructure exp4 = this.constructorRef(t2);
+
+        exp1.andExists(exp2, createSet(1, 3));
+        exp3.conj(exp4);
+        exp3.exists(createSet(1, 3));
+
+        assertEquals(exp3, exp1);
+    }
+
+    /*
+     * If-then-else Tests
+     */
+
+    /*
+     * If-then-else whose operands have a common order that no pairwise merge
+     * of their orders produces
+     */
+    @Test
+    public final void testIteCommonOrderNotMerged() {
+        BooleanStructure exp1 = this.constructorTest(1);
+        BooleanStructure exp2 = this.constructorTest(2);
+        BooleanStructure exp3 = this.constructorTest(
+                new SyntaxTree("2 1 and"));
+        exp3.reorder(createSequence(2, 1));
+        BooleanStructure exp4 = this.constructorRef(new SyntaxTree("1 2 and"));
+
+        exp1.ite(exp2, exp3);
+
+        assertTrue(exp1.isEquivalent(exp4));
+        assertTrue(BooleanStructureSecondary.IS_COMPATIBLE_ORDERING(
+                exp3.vars(), exp1.vars()));
+        assertEquals(createSequence(2, 1), exp1.vars());
+    }
+
+    /*
+     * Pairwise compatible orders with a cycle have no common order
+     */
+    @Test
+    public final void testIteCyclicOrders() {
+        assertEquals(null, BooleanStructureSecondary.commonOrder(
+                createSequence(1, 2), createSequence(2, 3),
+                createSequence(3, 1)));
+        assertEquals(createSequence(1, 2, 3),
+                BooleanStructureSecondary.commonOrder(createSequence(1, 2),
+                        createSequence(2, 3), createSequence(1, 3)));
+    }
+
+    /*
+     * Care Set Tests
+     */
+
+    /*
+     * Constrain by a single literal is the cofactor by that literal
+     */
+    @Test
+    public final void testConstrainLiteral() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+        BooleanStructure exp3 = this.constructorRef(new SyntaxTree("2 3 or"));
+
+        exp1.constrain(this.constructorTest(1));
+        exp2.constrain(this.constructorRef(1));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+        assertEquals(createSequence(1, 2, 3), exp1.vars());
+    }
+
+    /*
+     * Constrain by an unsatisfiable care set is false
+     */
+    @Test
+    public final void testConstrainFalse() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 or"));
+
+        exp1.constrain(this.constructorTest(false));
+
+        assertFalse(exp1.isSat());
+    }
+
+    /*
+     * Constrain adds the variables of the care set
+     */
+    @Test
+    public final void testConstrainEquivalence() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and");
+        SyntaxTree t2 = new SyntaxTree("1 2 and 1 not 2 not and or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+
+        exp1.constrain(this.constructorTest(t2));
+        exp2.constrain(this.constructorRef(t2));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(this.constructorRef(1)));
+    }
+
+    /*
+     * Simplify keeps the variables of this and agrees on the care set
+     */
+    @Test
+    public final void testSimplifyKeepsVariables() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and");
+        SyntaxTree t2 = new SyntaxTree("1 3 and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+
+        exp1.simplify(this.constructorTest(t2));
+        exp2.simplify(this.constructorRef(t2));
+
+        assertEquals(exp2, exp1);
+        assertEquals(createSequence(1, 2), exp1.vars());
+        assertTrue(exp1.isEquivalent(this.constructorRef(2)));
+    }
+
+    /*
+     * Simplify drops a variable made redundant by the care set
+     */
+    @Test
+    public final void testSimplifyEquivalence() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and");
+        SyntaxTree t2 = new SyntaxTree("1 2 and 1 not 2 not and or");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+
+        exp1.simplify(this.constructorTest(t2));
+        exp2.simplify(this.constructorRef(t2));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(this.constructorRef(1)));
+    }
+
+    /*
+     * Composition Tests
+     */
+
+    /*
+     * Substituting a disjunction for a variable of a conjunction
+     */
+    @Test
+    public final void testComposeDisjunction() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 and"));
+        BooleanStructure exp2 = this.constructorRef(new SyntaxTree("1 2 and"));
+        BooleanStructure exp3 = this.constructorRef(
+                new SyntaxTree("1 3 4 or and"));
+
+        exp1.compose(2, this.constructorTest(new SyntaxTree("3 4 or")));
+        exp2.compose(2, this.constructorRef(new SyntaxTree("3 4 or")));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+        assertEquals(createSequence(1, 3, 4), exp1.vars());
+    }
+
+    /*
+     * Substituting a function of the replaced variable itself
+     */
+    @Test
+    public final void testComposeSameVariable() {
+        BooleanStructure exp1 = this.constructorTest(new SyntaxTree("1 2 or"));
+        BooleanStructure exp2 = this.constructorRef(new SyntaxTree("1 2 or"));
+        BooleanStructure exp3 = this.constructorRef(
+                new SyntaxTree("1 not 2 or"));
+
+        exp1.compose(1, this.constructorTest(new SyntaxTree("1 not")));
+        exp2.compose(1, this.constructorRef(new SyntaxTree("1 not")));
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
+    /*
+     * Simultaneous substitution swaps two variables
+     */
+    @Test
+    public final void testComposeAllSwap() {
+        SyntaxTree t1 = new SyntaxTree("1 2 not and");
+        BooleanStructure exp1 = this.constructorTest(t1);
+        BooleanStructure exp2 = this.constructorRef(t1);
+        BooleanStructure exp3 = this.constructorRef(
+                new SyntaxTree("2 1 not and"));
+        Map<Integer, BooleanStructure> map1 = new HashMap<>();
+        map1.put(1, this.constructorTest(2));
+        map1.put(2, this.constructorTest(1));
+        Map<Integer, BooleanStructure> map2 = new HashMap<>();
+        map2.put(1, this.constructorRef(2));
+        map2.put(2, this.constructorRef(1));
+
+        exp1.composeAll(map1);
+        exp2.composeAll(map2);
+
+        assertEquals(exp2, exp1);
+        assertTrue(exp1.isEquivalent(exp3));
+    }
+
     /*
      * hashCode Tests
      */
@@ -702,4 +1366,16 @@ public abstract class BooleanStructureTest extends BooleanStructureKernelTest {
         assertTrue(exp1.evaluate(exp1.satAssignment()));
     }
 
+    @Test
+    public final void testSatAssignmentIntoSetFiveVarStructure() {
+        SyntaxTree st = new SyntaxTree("1 not 2 3 and 4 or and 5 not and");
+        BooleanStructure exp1 = this.constructorTest(st);
+        Set<Integer> a = createSet(1, 5, 7);
+
+        exp1.satAssignment(a);
+
+        assertTrue(exp1.evaluate(a));
+        assertFalse(a.contains(7));
+    }
+
 }
@@ -0,0 +1,132 @@
+package components.booleanstructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StaticOrderTest extends BooleanStructureTestUtilities {
+
+    /**
+     * Reports the total span of {@code clauses} under {@code order}.
+     *
+     * @param clauses
+     *            the clauses
+     * @param order
+     *            the order
+     * @return the sum over the clauses of the distance between their first
+     *         and last variables
+     */
+    private static int span(int[][] clauses, VariableOrder order) {
+        int result = 0;
+        for (int[] clause : clauses) {
+            int first = Integer.MAX_VALUE;
+            int last = Integer.MIN_VALUE;
+            for (int literal : clause) {
+                first = Math.min(first, order.rank(Math.abs(literal)));
+                last = Math.max(last, order.rank(Math.abs(literal)));
+            }
+            result += last - first;
+        }
+
+        return result;
+    }
+
+    /*
+     * Depth-first order of a tree, larger operands first
+     */
+    @Test
+    public final void testDfsFanInTree() {
+        SyntaxTree t1 = new SyntaxTree("1 2 and 3 4 and 5 and or");
+
+        VariableOrder order = StaticOrder.fromTree(t1,
+                OrderingHeuristic.DFS_FANIN);
+
+        assertEquals(createSequence(3, 4, 5, 1, 2), order.toSequence());
+    }
+
+    /*
+     * Depth-first order of clauses, from the variable of largest degree
+     */
+    @Test
+    public final void testDfsFanInClauses() {
+        int[][] clauses = { { 2, 1 }, { -1, 3 }, { 1, 4 }, { 5, -4 } };
+
+        VariableOrder order = StaticOrder.fromClauses(clauses,
+                OrderingHeuristic.DFS_FANIN);
+
+        assertEquals(createSequence(1, 4, 5, 2, 3), order.toSequence());
+    }
+
+    /*
+     * FORCE pulls the variables of a scattered chain together
+     */
+    @Test
+    public final void testForceChain() {
+        int[][] clauses = { { 1, 2 }, { 5, 6 }, { 3, 4 }, { 2, 3 }, { 4, 5 } };
+        VariableOrder appearance = new VariableOrder(
+                createSequence(1, 2, 5, 6, 3, 4));
+
+        VariableOrder order = StaticOrder.fromClauses(clauses,
+                OrderingHeuristic.FORCE);
+
+        assertEquals(6, order.length());
+        assertTrue(span(clauses, order) < span(clauses, appearance));
+    }
+
+    /*
+     * MINCE places two interleaved clusters in different halves
+     */
+    @Test
+    public final void testMinceClusters() {
+        int[][] clauses = { { 1, 3 }, { 2, 4 }, { 3, 5 }, { 4, 6 }, { 5, 1 },
+                { 6, 2 }, { -1, 3, 5 }, { 2, -4, 6 } };
+
+        VariableOrder order = StaticOrder.fromClauses(clauses,
+                OrderingHeuristic.MINCE);
+
+        assertEquals(6, order.length());
+        assertEquals(order.rank(1) < 3, order.rank(3) < 3);
+        assertEquals(order.rank(1) < 3, order.rank(5) < 3);
+        assertEquals(order.rank(2) < 3, order.rank(4) < 3);
+        assertEquals(order.rank(2) < 3, order.rank(6) < 3);
+        assertTrue(order.rank(1) < 3 != order.rank(2) < 3);
+    }
+
+    /*
+     * Heuristics other than DFS_FANIN read a tree as its top conjuncts
+     */
+    @Test
+    public final void testTreeClauses() {
+        SyntaxTree t1 = new SyntaxTree(
+                "1 2 or 5 6 or and 3 4 or and 2 3 or and 4 5 or and");
+        int[][] clauses = { { 1, 2 }, { 5, 6 }, { 3, 4 }, { 2, 3 }, { 4, 5 } };
+
+        assertEquals(StaticOrder.fromClauses(clauses, OrderingHeuristic.FORCE),
+                StaticOrder.fromTree(t1, OrderingHeuristic.FORCE));
+    }
+
+    /*
+     * A conjunct with a shared subformula and many variables lists each of
+     * its variables once
+     */
+    @Test
+    public final void testTreeClausesShared() {
+        final int n = 20;
+        StringBuilder or = new StringBuilder("1");
+        int[] first = new int[n + 1];
+        first[0] = 1;
+        for (int i = 2; i <= n; i++) {
+            or.append(" " + i + " or");
+            first[i - 1] = i;
+        }
+        first[n] = n + 1;
+        SyntaxTree t1 = new SyntaxTree(or + " " + or + " " + (n + 1)
+                + " and or " + (n + 1) + " " + (n + 2) + " or and");
+        int[][] clauses = { first, { n + 1, n + 2 } };
+
+        assertEquals(StaticOrder.fromClauses(clauses, OrderingHeuristic.FORCE),
+                StaticOrder.fromTree(t1, OrderingHeuristic.FORCE));
+    }
+
+}
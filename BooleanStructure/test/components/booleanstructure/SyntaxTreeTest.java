@@ -1,7 +1,9 @@
 package components.booleanstructure;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.net.URL;
 
@@ -411,6 +413,28 @@ public class SyntaxTreeTest {
                 st.toString());
     }
 
+    // ( ( 0 and 1 ) or ( 0 and 1 ) )
+    @Test
+    public final void testStringConstructorSharedSubformula() {
+        SyntaxTree st = new SyntaxTree("0 1 and 0 1 and or");
+
+        assertEquals(7, st.size());
+        assertEquals(4, st.dagSize());
+        assertSame(st.left(), st.right());
+        assertEquals("( ( 0 and 1 ) or ( 0 and 1 ) )", st.toString());
+    }
+
+    // ( ( not 0 ) and ( 1 or ( not 0 ) ) )
+    @Test
+    public final void testStringConstructorSharedLeaves() {
+        SyntaxTree st = new SyntaxTree("0 not 1 0 not or and");
+
+        assertEquals(7, st.size());
+        assertEquals(5, st.dagSize());
+        assertSame(st.left(), st.right().right());
+        assertNotSame(st.left(), st.right().left());
+    }
+
     @Ignore
     @Test
     public final void testFileConstructorOneConjunct() {
@@ -0,0 +1,72 @@
+package components.booleanstructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VariableOrderTest extends BooleanStructureTestUtilities {
+
+    /*
+     * Ranks of the variables of an order, and of a missing variable
+     */
+    @Test
+    public final void testRank() {
+        VariableOrder order = new VariableOrder(createSequence(5, 3, 9));
+
+        assertEquals(3, order.length());
+        assertEquals(0, order.rank(5));
+        assertEquals(2, order.rank(9));
+        assertEquals(-1, order.rank(4));
+        assertEquals(3, order.variable(1));
+        assertTrue(order.contains(3));
+        assertFalse(order.contains(4));
+    }
+
+    /*
+     * Orders agreeing on their shared variables are compatible
+     */
+    @Test
+    public final void testIsCompatible() {
+        VariableOrder order = new VariableOrder(createSequence(1, 2, 3, 4));
+
+        assertTrue(order.isCompatible(createSequence(2, 5, 4)));
+        assertTrue(order.isCompatible(createSequence(6, 7)));
+        assertFalse(order.isCompatible(createSequence(3, 2)));
+        assertFalse(order.isCompatible(
+                new VariableOrder(createSequence(4, 5, 1))));
+    }
+
+    /*
+     * Merging places the variables of the second order before the first
+     * shared variable that follows them
+     */
+    @Test
+    public final void testMerge() {
+        VariableOrder order1 = new VariableOrder(createSequence(1, 3, 5));
+        VariableOrder order2 = new VariableOrder(createSequence(2, 3, 4, 6));
+
+        VariableOrder merged = order1.merge(order2);
+
+        assertEquals(createSequence(1, 2, 3, 5, 4, 6), merged.toSequence());
+        assertTrue(merged.isCompatible(order1));
+        assertTrue(merged.isCompatible(order2));
+        assertEquals(4, merged.rank(4));
+    }
+
+    /*
+     * Merging disjoint orders appends the second to the first
+     */
+    @Test
+    public final void testMergeDisjoint() {
+        VariableOrder order1 = new VariableOrder(createSequence(1, 2));
+        VariableOrder order2 = new VariableOrder(createSequence(3, 4));
+
+        assertEquals(createSequence(1, 2, 3, 4),
+                order1.merge(order2).toSequence());
+        assertEquals(new VariableOrder(createSequence(3, 4, 1, 2)),
+                order2.merge(order1));
+    }
+
+}